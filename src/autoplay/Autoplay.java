@@ -9,15 +9,16 @@ import java.io.IOException;
 //
 // From the root directory of the project, run
 //
-//     java -cp bin autoplay.Autoplay n_games
+//     java -cp bin autoplay.Autoplay n_games [player1_class [player2_class]]
 //
-// Note: The script is currently set up to have the StudentPlayer play against
-// RandomHusPlayer. In order to have different players participate, you need
-// to change the variables ``client1_line`` and ``client2_line``. Make sure
-// that in those lines, the classpath and the class name is set appropriately
-// so that java can find and run the compiled code for the agent that you want
-// to test. For example to have StudentPlayer play against itself, you would
-// change ``client2_line`` to be equal to ``client1_line``.
+// Note: By default the script has the StudentPlayer play against
+// RandomTablutPlayer. In order to have different players participate, pass
+// their class names as the second and third arguments. Make sure that the
+// classes are on the classpath so that java can find and run the compiled
+// code for the agent that you want to test. For example to have StudentPlayer
+// play against itself, you would run
+//
+//     java -cp bin autoplay.Autoplay n_games student_player.StudentPlayer student_player.StudentPlayer
 //
 public class Autoplay {
     public static void main(String args[]) {
@@ -32,6 +33,8 @@ public class Autoplay {
                     "First argument to Autoplay must be a positive int " + "giving the number of games to play.");
             return;
         }
+        String player1 = (args.length > 1) ? args[1] : "student_player.StudentPlayer";
+        String player2 = (args.length > 2) ? args[2] : "tablut.RandomTablutPlayer";
 
         try {
             ProcessBuilder server_pb = new ProcessBuilder("java", "-cp", "bin", "boardgame.Server", "-ng", "-k");
@@ -40,11 +43,11 @@ public class Autoplay {
             Process server = server_pb.start();
 
             ProcessBuilder client1_pb = new ProcessBuilder("java", "-cp", "bin", "-Xms520m", "-Xmx520m",
-                    "boardgame.Client", "student_player.StudentPlayer");
+                    "boardgame.Client", player1);
             client1_pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
 
             ProcessBuilder client2_pb = new ProcessBuilder("java", "-cp", "bin", "-Xms520m", "-Xmx520m",
-                    "boardgame.Client", "tablut.RandomTablutPlayer");
+                    "boardgame.Client", player2);
             client2_pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
 
             for (int i = 0; i < n_games; i++) {
@@ -25,4 +25,11 @@ abstract public class BoardState implements Cloneable {
     abstract public boolean gameOver();
 
     abstract public Move getRandomMove();
+
+    /**
+     * Returns an independent copy of this board state. The client hands a copy to
+     * deadline-aware players, whose search may outlive the move it was for.
+     */
+    @Override
+    abstract public Object clone();
 }
@@ -6,6 +6,14 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.lang.Exception;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Boardgame player client code. Do not modify this class, implement Player
@@ -16,6 +24,9 @@ public class Client implements Runnable {
     protected static final int DEFAULT_PORT = Server.DEFAULT_PORT;
     protected static final String DEFAULT_PLAYER = "tablut.RandomPlayer";
     protected static final boolean DBGNET = true;
+    // For a deadline-aware player, the move is sent this long before the server's
+    // timeout if the player has not returned one by then.
+    protected static final int WATCHDOG_MARGIN = 100;
 
     private Socket socket;
     private PrintWriter sockOut;
@@ -27,6 +38,10 @@ public class Client implements Runnable {
     int playerID;
     Board board;
     boolean gameOver = false;
+    private ExecutorService chooser; // runs chooseMove() for a deadline-aware player
+    // When the message before the last PLAY arrived. The server sends PLAY right after
+    // it and starts its clock then, so time spent handling it counts against the move.
+    private long lastMessageMillis;
 
     private static void printUsage() {
         System.err.println("Usage: java boardgame.Client [playerClass [serverName [serverPort]]]\n"
@@ -127,7 +142,11 @@ public class Client implements Runnable {
         Move myMove = null;
 
         try {
-            myMove = player.chooseMove(board.getBoardState());
+            if (player.isDeadlineAware()) {
+                myMove = chooseMoveBeforeDeadline();
+            } else {
+                myMove = player.chooseMove(board.getBoardState());
+            }
 
             if (myMove == null) {
                 System.err.println("ATTENTION: Player didn't return a move.");
@@ -158,6 +177,46 @@ public class Client implements Runnable {
         }
     }
 
+    /**
+     * Runs a deadline-aware player's chooseMove() on a worker thread. If it has not
+     * returned WATCHDOG_MARGIN before the server's timeout, its best move so far is
+     * played instead and the worker is abandoned, since it may never return. The
+     * player is told the time left on the server's clock, not the full timeout.
+     */
+    private Move chooseMoveBeforeDeadline() throws Exception {
+        BoardState boardState = board.getBoardState();
+        long timeout = (boardState.getTurnNumber() == 0) ? Server.FIRST_MOVE_TIMEOUT : Server.DEFAULT_TIMEOUT;
+        final long timeLeft = timeout - (System.currentTimeMillis() - lastMessageMillis);
+        final BoardState copy = (BoardState) boardState.clone();
+        if (chooser == null) {
+            chooser = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "chooseMove");
+                    thread.setDaemon(true); // a stuck player must not keep the client alive
+                    return thread;
+                }
+            });
+        }
+        Future<Move> choice = chooser.submit(new Callable<Move>() {
+            public Move call() {
+                return player.chooseMove(copy, timeLeft);
+            }
+        });
+
+        try {
+            return choice.get(Math.max(0, timeLeft - WATCHDOG_MARGIN), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("ATTENTION: " + player.getClass().getName()
+                    + ".chooseMove() is about to time out. Playing its best move so far.");
+            choice.cancel(true);
+            chooser.shutdown();
+            chooser = null;
+            return player.getBestMoveSoFar();
+        } catch (ExecutionException e) {
+            throw new Exception(e.getCause());
+        }
+    }
+
     /** Connect to a server. This blocks until the game starts. */
     protected boolean connect() {
         System.out.println("Connecting to " + serverName + ":" + serverPort + "... ");
@@ -177,6 +236,7 @@ public class Client implements Runnable {
 
             while (msg == null || !msg.startsWith("START")) {
                 msg = sockIn.readLine(); // Waits for server response.
+                lastMessageMillis = System.currentTimeMillis();
                 if (DBGNET)
                     System.err.println(player.getColor() + "> " + msg);
             }
@@ -205,6 +265,8 @@ public class Client implements Runnable {
                 inputLine = sockIn.readLine();
                 if (inputLine == null)
                     continue;
+                if (!inputLine.startsWith("PLAY"))
+                    lastMessageMillis = System.currentTimeMillis();
                 if (DBGNET)
                     System.err.println(player.getColor() + "> " + inputLine);
                 processMessage(inputLine);
@@ -22,6 +22,11 @@ import boardgame.BoardState;
  * method for any cleanup tasks. You may also override the movePlayed() method
  * to be notified whenever a move is received from the server.
  *
+ * A player whose search may overrun the server's timeout can override
+ * isDeadlineAware() to return true. The client then calls
+ * chooseMove(BoardState, long) on a worker thread, and if it has not returned
+ * shortly before the timeout, plays getBestMoveSoFar() instead.
+ *
  * See the BohnenspielRandomPlayer class for an example implementation.
  */
 public abstract class Player {
@@ -71,6 +76,40 @@ public abstract class Player {
      */
     abstract public Move chooseMove(BoardState board_state);
 
+    /**
+     * Return true to have the client choose this player's moves with
+     * chooseMove(BoardState, long) on a worker thread, watched by a timer that plays
+     * getBestMoveSoFar() if the server's timeout is about to expire. The default
+     * is false: the client calls chooseMove(BoardState) and waits for it.
+     */
+    public boolean isDeadlineAware() {
+        return false;
+    }
+
+    /**
+     * Called instead of chooseMove(BoardState) for a deadline-aware player. The
+     * default implementation ignores the time and calls chooseMove(BoardState).
+     *
+     * @param board_state
+     *            A copy of the current board state, owned by this call.
+     * @param timeLeftMillis
+     *            The time left before the server's timeout for this move.
+     * @return the move to be sent to the server.
+     */
+    public Move chooseMove(BoardState board_state, long timeLeftMillis) {
+        return chooseMove(board_state);
+    }
+
+    /**
+     * Returns the best move found so far by the chooseMove() call in progress, or
+     * null if there is none yet. Called by the client from another thread when a
+     * deadline-aware player is about to run out of time, after which the client no
+     * longer waits for chooseMove(), so this is the place to stop it.
+     */
+    public Move getBestMoveSoFar() {
+        return null;
+    }
+
     /**
      * Called when a GAMEOVER message is received from the server.
      * 
@@ -2,16 +2,31 @@ package coordinates;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import coordinates.Coord;
 
 public class Coordinates {
+    /*
+     * Squares are numbered x * size + y. Directions are numbered 0 to 3 for -x, -y,
+     * +x and +y, and OFF_BOARD stands in for a square past the edge of the board.
+     */
+    public static final int DIRECTIONS = 4;
+    public static final int OFF_BOARD = -1;
+    private static final int[] DIRECTION_X = { -1, 0, 1, 0 };
+    private static final int[] DIRECTION_Y = { 0, -1, 0, 1 };
+
     private static Coord[][] allCoordinates;
     private static int size;
     private static boolean isSet = false;
 
+    // Precomputed when the coordinates are set, so lookups never allocate or throw.
+    private static List<Coord>[][] neighbors;
+    private static int[] neighborSquares; // indexed by square * DIRECTIONS + direction
+    private static int[] sandwichSquares; // same indexing, two steps instead of one
+
     // Sets all coords, should ONLY BE called once.
     public static void setAllCoordinates(int max) {
         if (!isSet) {
@@ -22,10 +37,38 @@ public class Coordinates {
                     allCoordinates[i][j] = new Coord(i, j);
                 }
             }
+            setNeighborTables();
             isSet = true;
         }
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static void setNeighborTables() {
+        neighbors = new List[size][size];
+        neighborSquares = new int[size * size * DIRECTIONS];
+        sandwichSquares = new int[size * size * DIRECTIONS];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                List<Coord> coords = new ArrayList<>();
+                for (int direction = 0; direction < DIRECTIONS; direction++) {
+                    int index = (i * size + j) * DIRECTIONS + direction;
+                    neighborSquares[index] = squareAt(i + DIRECTION_X[direction], j + DIRECTION_Y[direction]);
+                    sandwichSquares[index] = squareAt(i + 2 * DIRECTION_X[direction], j + 2 * DIRECTION_Y[direction]);
+                    if (neighborSquares[index] != OFF_BOARD) {
+                        coords.add(allCoordinates[i + DIRECTION_X[direction]][j + DIRECTION_Y[direction]]);
+                    }
+                }
+                neighbors[i][j] = Collections.unmodifiableList(coords);
+            }
+        }
+    }
+
+    private static int squareAt(int i, int j) {
+        if (i < 0 || i >= size || j < 0 || j >= size)
+            return OFF_BOARD;
+        return i * size + j;
+    }
+
     public static Coord get(int i, int j) {
         return allCoordinates[i][j];
     }
@@ -62,19 +105,21 @@ public class Coordinates {
         return Arrays.asList(get(0, 0), get(0, size - 1), get(size - 1, 0), get(size - 1, size - 1));
     }
 
+    // Returns the on-board neighbors of c, in direction order. The list is shared and
+    // cannot be modified.
     public static List<Coord> getNeighbors(Coord c) {
-        List<Coord> neighbors = new ArrayList<>();
-        for (int incr : Arrays.asList(-1, 1)) {
-            try {
-                neighbors.add(get(c.x + incr, c.y));
-            } catch (IndexOutOfBoundsException e) {
-            }
-            try {
-                neighbors.add(get(c.x, c.y + incr));
-            } catch (IndexOutOfBoundsException e) {
-            }
-        }
-        return neighbors;
+        return neighbors[c.x][c.y];
+    }
+
+    // Returns the square next to the given one in a direction, or OFF_BOARD.
+    public static int getNeighborSquare(int square, int direction) {
+        return neighborSquares[square * DIRECTIONS + direction];
+    }
+
+    // Returns the square two steps away in a direction, or OFF_BOARD. This is the
+    // square that sandwiches the neighbor in that direction.
+    public static int getSandwichSquare(int square, int direction) {
+        return sandwichSquares[square * DIRECTIONS + direction];
     }
 
     // Returns the coordinate with which a sandwich would be made around "middle",
@@ -86,12 +131,12 @@ public class Coordinates {
             throw new CoordinateDoesNotExistException(
                     "These coordinates are not adjacent: " + front.toString() + " and " + middle.toString());
         }
-        try {
-            Coord back = get(middle.x - xDiff, middle.y - yDiff);
-            return back;
-        } catch (IndexOutOfBoundsException e) {
+        int backX = middle.x - xDiff;
+        int backY = middle.y - yDiff;
+        if (squareAt(backX, backY) == OFF_BOARD) {
             throw new CoordinateDoesNotExistException("The sandwich coordinate would be off the board.");
         }
+        return get(backX, backY);
     }
 
     // Given a coordinate, returns the distance between it and the closest corner.
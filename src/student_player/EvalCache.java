@@ -0,0 +1,88 @@
+package student_player;
+
+import java.util.Arrays;
+
+import tablut.TablutBoardState;
+
+/**
+ * A direct-mapped cache of static evaluations, in front of the player's Evaluator.
+ * Many leaves of the search are the same position reached by different move
+ * orders, and the quiescence search evaluates every node it visits, so the same
+ * evaluation would otherwise be computed over and over.
+ *
+ * Each entry is two longs, checked by xor as in the transposition table: the key
+ * xor'ed with the score, then the score's double bits, so that a hit returns
+ * exactly what the evaluator computed. Threads share the cache without locks; an entry torn by two
+ * writes at once fails the xor check and is a miss. A new entry simply replaces
+ * whatever was in its slot.
+ *
+ * The key is the position's Zobrist key mixed with the turn number, since the
+ * evaluation weights change as the game goes on, and with the side the score is
+ * for.
+ *
+ * It is sized separately from the transposition table, with
+ * -Dstudent_player.evalcache=megabytes (0 turns it off).
+ */
+public class EvalCache {
+	// Small enough to stay in the processor caches; the hit rate hardly grows past it.
+	public static final int DEFAULT_MEGABYTES = 1;
+
+	private static final long TURN_KEY = 0x9E3779B97F4A7C15L;
+	private static final long SWEDE_KEY = 0xC2B2AE3D27D4EB4FL;
+
+	private static final int ENTRY_LONGS = 2;
+	private static final int ENTRY_BYTES = ENTRY_LONGS * 8;
+
+	private final long[] table;
+	private final int indexMask;
+
+	/**
+	 * Creates a cache using at most the given number of megabytes. The number of
+	 * entries is rounded down to a power of two.
+	 */
+	public EvalCache(int megabytes) {
+		long maxEntries = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+		int entries = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 28));
+		table = new long[entries * ENTRY_LONGS];
+		indexMask = entries - 1;
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	public int capacity() {
+		return indexMask + 1;
+	}
+
+	/**
+	 * Returns the evaluation of the position for the given player, or NaN if it is
+	 * not in the cache.
+	 */
+	public double probe(TablutBoardState boardState, int player) {
+		long key = key(boardState, player);
+		int index = index(key);
+		long data = table[index + 1];
+		if ((table[index] ^ data) != key) {
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(data);
+	}
+
+	public void store(TablutBoardState boardState, int player, double score) {
+		long key = key(boardState, player);
+		int index = index(key);
+		long data = Double.doubleToRawLongBits(score);
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+
+	private static long key(TablutBoardState boardState, int player) {
+		long key = boardState.getHashKey() ^ (boardState.getTurnNumber() * TURN_KEY);
+		return (player == TablutBoardState.SWEDE) ? key ^ SWEDE_KEY : key;
+	}
+
+	private int index(long key) {
+		return ((int) (key ^ (key >>> 32)) & indexMask) * ENTRY_LONGS;
+	}
+}
@@ -0,0 +1,97 @@
+package student_player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+
+/**
+ * Measures what the evaluation cache saves.
+ *
+ * Positions are taken from games StudentPlayer plays against itself at a shallow
+ * depth, after a few random opening moves so that the games differ. Each is then
+ * searched to a fixed depth with the cache off and with it on, each time with a
+ * fresh player so that nothing carries over from one position to the next. The
+ * time taken, the number of evaluations computed and the cache hit rate are
+ * printed for both.
+ *
+ * From the root directory of the project, after ant compile, run
+ *
+ *     java -cp bin student_player.EvalCacheBenchmark [depth] [positions] [megabytes]
+ */
+public class EvalCacheBenchmark {
+	private static final int DEFAULT_DEPTH = 5;
+	private static final int DEFAULT_POSITIONS = 32;
+	private static final int GAME_DEPTH = 2;
+	private static final int RANDOM_OPENING_PLIES = 4;
+	private static final long SEED = 424;
+	private static final long NO_TIME_LIMIT = 24L * 60 * 60 * 1000;
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		int positionCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+		int megabytes = (args.length > 2) ? Integer.parseInt(args[2]) : EvalCache.DEFAULT_MEGABYTES;
+
+		List<TablutBoardState> positions = gamePositions(positionCount, new Random(SEED));
+		search(positions, depth, megabytes); // let the JIT compile the search first
+		System.out.println("depth " + depth + ", " + positions.size() + " positions, " + megabytes + " MB cache");
+		System.out.println("cache     time (ms)    evaluations    eval_hit    speedup");
+		double uncachedMillis = 0;
+		for (int size : new int[] { 0, megabytes }) {
+			long start = System.nanoTime();
+			SearchStats stats = search(positions, depth, size);
+			double millis = (System.nanoTime() - start) / 1e6;
+			if (size == 0) {
+				uncachedMillis = millis;
+			}
+			System.out.println(String.format("%5s %13.0f %14d %11.3f %10.2f", (size == 0) ? "off" : "on", millis,
+					stats.getEvaluations(), stats.getEvalCacheHitRate(), uncachedMillis / millis));
+		}
+	}
+
+	// Searches each position with a fresh player, and returns the statistics of all.
+	private static SearchStats search(List<TablutBoardState> positions, int depth, int megabytes) {
+		System.setProperty(StudentPlayer.EVAL_CACHE_PROPERTY, Integer.toString(megabytes));
+		SearchStats total = new SearchStats(0);
+		for (TablutBoardState position : positions) {
+			StudentPlayer player = new StudentPlayer(TranspositionTable.DEFAULT_MEGABYTES, 1);
+			player.setColor(position.getTurnPlayer());
+			player.setSearchLimits(depth, NO_TIME_LIMIT);
+			player.setLogStats(false);
+			player.chooseMove(position);
+			total.add(player.getLastSearchStats());
+		}
+		return total;
+	}
+
+	// Every position of self-play games, until there are enough, spread over the games.
+	private static List<TablutBoardState> gamePositions(int count, Random random) {
+		List<TablutBoardState> played = new ArrayList<TablutBoardState>();
+		while (played.size() < 4 * count) {
+			TablutBoardState boardState = new TablutBoardState();
+			StudentPlayer[] players = new StudentPlayer[2];
+			for (int i = 0; i < players.length; i++) {
+				players[i] = new StudentPlayer(1);
+				players[i].setColor(i);
+				players[i].setSearchLimits(GAME_DEPTH, NO_TIME_LIMIT);
+				players[i].setLogStats(false);
+			}
+			for (int i = 0; i < RANDOM_OPENING_PLIES && !boardState.gameOver(); i++) {
+				List<TablutMove> moves = boardState.getAllLegalMoves();
+				boardState.processMove(moves.get(random.nextInt(moves.size())));
+			}
+			while (!boardState.gameOver()) {
+				played.add((TablutBoardState) boardState.clone());
+				StudentPlayer player = players[boardState.getTurnPlayer()];
+				boardState.processMove((TablutMove) player.chooseMove(boardState));
+			}
+		}
+		List<TablutBoardState> positions = new ArrayList<TablutBoardState>();
+		for (int i = 0; i < count; i++) {
+			positions.add(played.get(i * played.size() / count));
+		}
+		return positions;
+	}
+}
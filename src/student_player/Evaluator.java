@@ -0,0 +1,21 @@
+package student_player;
+
+import tablut.TablutBoardState;
+
+/**
+ * A static evaluation function for the search. StudentPlayer uses
+ * HandTunedEvaluator unless another is chosen, with
+ * -Dstudent_player.evaluator=class_name or setEvaluator(), so that candidate
+ * evaluations can be compared (see EvaluatorMatch) without editing the player.
+ *
+ * Implementations need a public no-argument constructor to be chosen by name, and
+ * must be safe to call from several search threads at once.
+ */
+public interface Evaluator {
+	/**
+	 * Returns the value of a position where the game is not over, from the given
+	 * player's point of view: the higher, the better for that player. Values should
+	 * stay well inside the search window of StudentPlayer (+/- 10000).
+	 */
+	double evaluate(TablutBoardState boardState, int player);
+}
@@ -0,0 +1,89 @@
+package student_player;
+
+import java.util.List;
+import java.util.Random;
+
+import boardgame.Board;
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+
+/**
+ * Plays StudentPlayer against itself with two different evaluators, to compare
+ * them without rebuilding or running the server.
+ *
+ * Games come in pairs: both start from the same few random moves, and the
+ * evaluators swap sides for the second game, so that neither gains from the
+ * opening or from the side it plays. Every move gets the same fixed time. Each
+ * result is printed as it comes, as wins, losses and draws for the first
+ * evaluator.
+ *
+ * From the root directory of the project, after ant compile, run for example
+ *
+ *     java -cp bin student_player.EvaluatorMatch 20 student_player.HandTunedEvaluator student_player.TaperedEvaluator [move_ms]
+ */
+public class EvaluatorMatch {
+	private static final long DEFAULT_MOVE_MILLIS = 500;
+	private static final int RANDOM_OPENING_PLIES = 4;
+	private static final int TRANSPOSITION_TABLE_MEGABYTES = 16;
+	private static final int NO_DEPTH_LIMIT = Integer.MAX_VALUE;
+	private static final long SEED = 424;
+
+	public static void main(String[] args) {
+		if (args.length < 3) {
+			System.err.println("Usage: java student_player.EvaluatorMatch n_games evaluator_a evaluator_b [move_ms]");
+			System.exit(1);
+		}
+		int games = Integer.parseInt(args[0]);
+		Evaluator[] evaluators = { StudentPlayer.createEvaluator(args[1]), StudentPlayer.createEvaluator(args[2]) };
+		long moveMillis = (args.length > 3) ? Long.parseLong(args[3]) : DEFAULT_MOVE_MILLIS;
+
+		Random random = new Random(SEED);
+		long openingSeed = 0;
+		int wins = 0, losses = 0, draws = 0;
+		for (int game = 0; game < games; game++) {
+			if (game % 2 == 0) {
+				openingSeed = random.nextLong();
+			}
+			int firstColor = game % 2; // the side of evaluators[0]
+			int winner = play(evaluators, firstColor, moveMillis, new Random(openingSeed));
+			if (winner == firstColor) {
+				wins++;
+			} else if (winner == Board.DRAW) {
+				draws++;
+			} else {
+				losses++;
+			}
+			System.out.println("game " + game + ": " + args[1] + " as " + sideName(firstColor) + ", winner "
+					+ ((winner == Board.DRAW) ? "none" : sideName(winner)) + ", W/L/D " + wins + "/" + losses + "/" + draws);
+		}
+	}
+
+	// Plays one game and returns the winner.
+	private static int play(Evaluator[] evaluators, int firstColor, long moveMillis, Random openingRandom) {
+		StudentPlayer[] players = new StudentPlayer[2];
+		for (int i = 0; i < players.length; i++) {
+			int color = (i == 0) ? firstColor : 1 - firstColor;
+			players[color] = new StudentPlayer(TRANSPOSITION_TABLE_MEGABYTES);
+			players[color].setColor(color);
+			players[color].setEvaluator(evaluators[i]);
+			players[color].setSearchLimits(NO_DEPTH_LIMIT, moveMillis);
+			players[color].setLogStats(false);
+		}
+
+		TablutBoardState boardState = new TablutBoardState();
+		for (int i = 0; i < RANDOM_OPENING_PLIES && !boardState.gameOver(); i++) {
+			List<TablutMove> moves = boardState.getAllLegalMoves();
+			boardState.processMove(moves.get(openingRandom.nextInt(moves.size())));
+		}
+		while (!boardState.gameOver()) {
+			StudentPlayer player = players[boardState.getTurnPlayer()];
+			TablutMove move = (TablutMove) player.chooseMove((TablutBoardState) boardState.clone());
+			boardState.processMove(move);
+		}
+		return boardState.getWinner();
+	}
+
+	private static String sideName(int color) {
+		return (color == TablutBoardState.SWEDE) ? "Swedes" : "Muscovites";
+	}
+}
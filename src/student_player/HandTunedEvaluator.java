@@ -0,0 +1,14 @@
+package student_player;
+
+import tablut.TablutBoardState;
+
+/**
+ * The evaluation StudentPlayer has always used, MyTools.evaluation(), with weights
+ * that change in steps at turns 40 and 70 and differ between the two sides.
+ */
+public class HandTunedEvaluator implements Evaluator {
+	@Override
+	public double evaluate(TablutBoardState boardState, int player) {
+		return MyTools.evaluation(boardState, player);
+	}
+}
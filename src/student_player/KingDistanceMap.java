@@ -0,0 +1,132 @@
+package student_player;
+
+import tablut.Bitboards;
+import tablut.TablutBoardState;
+
+/**
+ * The number of moves the king needs to reach each square, as if the other pieces
+ * stood still: a breadth-first flood fill over the occupancy bitboards.
+ *
+ * Each step slides every square of the frontier as far as it goes in the four
+ * directions at once, with shifts of the whole two-word bitboard (see Bitboards),
+ * so a step costs a few dozen word operations however many squares the frontier
+ * holds. The king may stop on any empty square, corners and center included, so
+ * only the pieces block it.
+ *
+ * A map is meant to be reused: compute() overwrites it and allocates nothing. The
+ * squares reached at each distance are kept as bitboards, so distanceTo() is a few
+ * bit tests, and evaluation terms other than distances to the corners can read the
+ * reachable squares directly.
+ */
+public class KingDistanceMap {
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	// The furthest compute() will look, which is further than any evaluation needs.
+	public static final int MAX_DISTANCE = 2 * TablutBoardState.BOARD_SIZE;
+
+	private static final int[] CORNERS = { Bitboards.square(0, 0), Bitboards.square(0, 8), Bitboards.square(8, 0),
+			Bitboards.square(8, 8) };
+
+	/*
+	 * The four directions as shifts of the square index, and the squares a slide in
+	 * each may start from: a step along a row must not wrap around into the next.
+	 */
+	private static final int[] SHIFTS = { TablutBoardState.BOARD_SIZE, -TablutBoardState.BOARD_SIZE, 1, -1 };
+	private static final long[] SOURCE_LOW = { Bitboards.LOW_MASK, Bitboards.LOW_MASK, Bitboards.NOT_LAST_COLUMN_LOW,
+			Bitboards.NOT_FIRST_COLUMN_LOW };
+	private static final long[] SOURCE_HIGH = { Bitboards.HIGH_MASK, Bitboards.HIGH_MASK,
+			Bitboards.NOT_LAST_COLUMN_HIGH, Bitboards.NOT_FIRST_COLUMN_HIGH };
+
+	// Squares reached within d moves, for d from 0 to the distance computed.
+	private final long[] withinLow = new long[MAX_DISTANCE + 1];
+	private final long[] withinHigh = new long[MAX_DISTANCE + 1];
+	private int maxComputed = -1;
+
+	/**
+	 * Fills the map for the king of the given state, up to maxDistance moves (the
+	 * search stops earlier if no new square is reached). Squares further away are
+	 * UNREACHABLE, as is every square once the king has been captured.
+	 */
+	public void compute(TablutBoardState boardState, int maxDistance) {
+		int kingSquare = boardState.getKingSquare();
+		if (kingSquare < 0) {
+			maxComputed = -1;
+			return;
+		}
+		long emptyLow = ~boardState.getOccupiedLow();
+		long emptyHigh = ~boardState.getOccupiedHigh() & Bitboards.HIGH_MASK;
+		long reachedLow = Bitboards.isHigh(kingSquare) ? 0 : Bitboards.bit(kingSquare);
+		long reachedHigh = Bitboards.isHigh(kingSquare) ? Bitboards.bit(kingSquare) : 0;
+		withinLow[0] = reachedLow;
+		withinHigh[0] = reachedHigh;
+		long frontierLow = reachedLow, frontierHigh = reachedHigh;
+
+		int distance = 0;
+		int limit = Math.min(maxDistance, MAX_DISTANCE);
+		while (distance < limit && (frontierLow | frontierHigh) != 0) {
+			long slidesLow = 0, slidesHigh = 0;
+			for (int direction = 0; direction < 4; direction++) {
+				int shift = SHIFTS[direction];
+				long genLow = frontierLow, genHigh = frontierHigh;
+				while ((genLow | genHigh) != 0) {
+					genLow &= SOURCE_LOW[direction];
+					genHigh &= SOURCE_HIGH[direction];
+					long nextLow = Bitboards.shiftLow(genLow, genHigh, shift) & emptyLow;
+					genHigh = Bitboards.shiftHigh(genLow, genHigh, shift) & emptyHigh;
+					genLow = nextLow;
+					slidesLow |= genLow;
+					slidesHigh |= genHigh;
+				}
+			}
+			frontierLow = slidesLow & ~reachedLow;
+			frontierHigh = slidesHigh & ~reachedHigh;
+			reachedLow |= frontierLow;
+			reachedHigh |= frontierHigh;
+			distance++;
+			withinLow[distance] = reachedLow;
+			withinHigh[distance] = reachedHigh;
+		}
+		maxComputed = distance;
+	}
+
+	/**
+	 * Returns the number of moves the king needs to reach the square, or
+	 * UNREACHABLE if it cannot within the distance computed.
+	 */
+	public int distanceTo(int square) {
+		for (int distance = 0; distance <= maxComputed; distance++) {
+			if (Bitboards.contains(withinLow[distance], withinHigh[distance], square))
+				return distance;
+		}
+		return UNREACHABLE;
+	}
+
+	public int distanceTo(int x, int y) {
+		return distanceTo(Bitboards.square(x, y));
+	}
+
+	/**
+	 * Returns the number of corners the king can reach in exactly the given number
+	 * of moves.
+	 */
+	public int cornersAtDistance(int distance) {
+		int count = 0;
+		for (int corner : CORNERS) {
+			if (distanceTo(corner) == distance)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the squares the king can reach within the given number of moves, its
+	 * own square included, as the low word of a bitboard. getReachableHigh() returns
+	 * the high word. Both are empty beyond the distance computed.
+	 */
+	public long getReachableLow(int distance) {
+		return (distance <= maxComputed) ? withinLow[distance] : 0;
+	}
+
+	public long getReachableHigh(int distance) {
+		return (distance <= maxComputed) ? withinHigh[distance] : 0;
+	}
+}
@@ -0,0 +1,276 @@
+package student_player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import boardgame.Board;
+import boardgame.Move;
+import coordinates.Coordinates;
+import tablut.Bitboards;
+import tablut.PackedMoves;
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+import tablut.TablutPlayer;
+
+/**
+ * A Monte Carlo tree search player, as an alternative to the alpha-beta search of
+ * StudentPlayer.
+ *
+ * Each iteration walks down the tree choosing children by UCT, expands the leaf it
+ * reaches once the leaf has been visited a few times, plays the game out with
+ * random moves, and counts the result in every node on the way back. New children
+ * get a progressive bias from MyTools.kingMovesToCornerValue(), so that moves
+ * bringing the king closer to a corner (or, for the Muscovites, blocking it) are
+ * tried early and favoured until the playouts have something to say about them.
+ *
+ * The tree lives in an MctsTree node pool. Every thread walks it on its own copy
+ * of the board with makeMove() and unmakeMove(), so an iteration allocates nothing.
+ * With more than one thread (-Dstudent_player.threads=N, as for StudentPlayer), the
+ * threads grow the same tree, kept apart by virtual loss.
+ *
+ * To compare it with StudentPlayer at equal time, run
+ *
+ *     java -cp bin autoplay.Autoplay n_games student_player.StudentPlayer student_player.MctsTablutPlayer
+ */
+public class MctsTablutPlayer extends TablutPlayer {
+	public static final int DEFAULT_POOL_NODES = 1 << 22;
+
+	private static final double EXPLORATION = 0.7;
+	private static final double BIAS_WEIGHT = 1.0;
+	// kingMovesToCornerValue() is 1 per corner one move away; keep even 4 below CAPTURE_BIAS.
+	private static final double KING_VALUE_SCALE = 1.0 / 15;
+	private static final double CAPTURE_BIAS = 0.3;
+	private static final double WIN_BIAS = 100;
+	// A leaf is expanded once it has had this many playouts.
+	private static final int EXPANSION_VISITS = 2;
+	private static final int ITERATIONS_PER_TIME_CHECK = 16;
+	private static final int MAX_TREE_DEPTH = 2 * (TablutBoardState.MAX_TURNS + 2);
+
+	private final MctsTree tree;
+	private final Worker[] workers;
+	private ExecutorService workerPool;
+
+	public MctsTablutPlayer() {
+		this(DEFAULT_POOL_NODES, Integer.getInteger(StudentPlayer.THREADS_PROPERTY, 1));
+	}
+
+	/**
+	 * Creates the player with a node pool of the given size, searching with the
+	 * given number of threads.
+	 */
+	public MctsTablutPlayer(int poolNodes, int threads) {
+		super("MctsPlayer");
+		tree = new MctsTree(poolNodes);
+		workers = new Worker[Math.max(1, threads)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(i + 1);
+		}
+	}
+
+	@Override
+	public Move chooseMove(TablutBoardState boardState) {
+		TimeManager time = new TimeManager(TimeManager.budgetForTurn(boardState.getTurnNumber()));
+		tree.reset();
+		for (Worker worker : workers) {
+			worker.setRoot(boardState);
+		}
+
+		// Expanding the root first also catches a move that wins on the spot.
+		Worker mainWorker = workers[0];
+		tree.startExpansion(MctsTree.ROOT);
+		int winningMove = mainWorker.expand(MctsTree.ROOT);
+		if (winningMove == MctsTree.NO_NODE) {
+			// The pool cannot even hold the root's children, so there is no tree to search.
+			System.err.println("MctsTablutPlayer: node pool too small, playing a random move");
+			return boardState.getRandomMove();
+		}
+		if (winningMove != 0) {
+			return PackedMoves.toTablutMove(winningMove, player_id);
+		}
+
+		List<Future<?>> searches = startWorkers(time);
+		mainWorker.search(time);
+		time.stop();
+		for (Future<?> search : searches) {
+			try {
+				search.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+		return PackedMoves.toTablutMove(tree.move(tree.mostVisitedChild(MctsTree.ROOT)), player_id);
+	}
+
+	// Sets the other workers, if any, searching the tree on their own threads.
+	private List<Future<?>> startWorkers(final TimeManager time) {
+		List<Future<?>> searches = new ArrayList<Future<?>>();
+		if (workers.length == 1) {
+			return searches;
+		}
+		if (workerPool == null) {
+			workerPool = Executors.newFixedThreadPool(workers.length - 1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "MctsTablutPlayer worker");
+					thread.setDaemon(true); // never keep the client alive
+					return thread;
+				}
+			});
+		}
+		for (int i = 1; i < workers.length; i++) {
+			final Worker worker = workers[i];
+			searches.add(workerPool.submit(new Runnable() {
+				@Override
+				public void run() {
+					worker.search(time);
+				}
+			}));
+		}
+		return searches;
+	}
+
+	/**
+	 * One thread's share of the search: its own board and buffers, reused from
+	 * iteration to iteration.
+	 */
+	private class Worker {
+		private TablutBoardState board;
+		private final int[] moveBuffer = new int[PackedMoves.MAX_MOVES];
+		private final int[] path = new int[MAX_TREE_DEPTH + 1];
+		private final int[] movers = new int[MAX_TREE_DEPTH + 1];
+		private long random; // xorshift state
+
+		Worker(long seed) {
+			random = 0x9E3779B97F4A7C15L * seed;
+		}
+
+		void setRoot(TablutBoardState boardState) {
+			board = (TablutBoardState) boardState.clone();
+		}
+
+		void search(TimeManager time) {
+			do {
+				for (int i = 0; i < ITERATIONS_PER_TIME_CHECK; i++) {
+					iterate();
+				}
+			} while (!time.isTimeUp());
+		}
+
+		// One selection, expansion, playout and backpropagation from the root.
+		private void iterate() {
+			int rootDepth = board.getUndoDepth();
+			int node = MctsTree.ROOT;
+			int length = 0;
+			tree.addVisit(node);
+			while (!board.gameOver()) {
+				if (!tree.isExpanded(node)) {
+					if (tree.visits(node) < EXPANSION_VISITS || !tree.startExpansion(node)
+							|| expand(node) == MctsTree.NO_NODE) {
+						break;
+					}
+				}
+				if (length == MAX_TREE_DEPTH) {
+					break;
+				}
+				node = tree.selectChild(node, EXPLORATION, BIAS_WEIGHT);
+				tree.addVisit(node);
+				movers[length] = board.getTurnPlayer();
+				path[length++] = node;
+				board.makeMove(tree.move(node));
+			}
+
+			int winner = playout();
+			for (int i = 0; i < length; i++) {
+				if (winner == movers[i]) {
+					tree.addResult(path[i], 2);
+				} else if (winner == Board.DRAW) {
+					tree.addResult(path[i], 1);
+				}
+			}
+			while (board.getUndoDepth() > rootDepth) {
+				board.unmakeMove();
+			}
+		}
+
+		/**
+		 * Adds the children of a node claimed with tree.startExpansion(), the board
+		 * being at that node. Returns a move that wins immediately if there is one,
+		 * MctsTree.NO_NODE if the pool is full, and 0 otherwise.
+		 */
+		int expand(int node) {
+			int count = board.generateLegalMoves(moveBuffer);
+			int first = tree.allocateChildren(node, count);
+			if (first == MctsTree.NO_NODE) {
+				return MctsTree.NO_NODE;
+			}
+			int mover = board.getTurnPlayer();
+			int winningMove = 0;
+			for (int i = 0; i < count; i++) {
+				int move = moveBuffer[i];
+				double bias = bias(move, mover);
+				if (bias >= WIN_BIAS) {
+					winningMove = move;
+				}
+				tree.setChild(first + i, move, bias);
+			}
+			tree.finishExpansion(node);
+			return winningMove;
+		}
+
+		// The progressive bias of a move, for the player making it.
+		private double bias(int move, int mover) {
+			int opponentPieces = board.getNumberPlayerPieces(1 - mover);
+			board.makeMove(move);
+			double bias;
+			if (board.getWinner() == mover) {
+				bias = WIN_BIAS;
+			} else {
+				double kingValue = (board.getKingPosition() == null) ? 0 : MyTools.kingMovesToCornerValue(board);
+				bias = KING_VALUE_SCALE * ((mover == TablutBoardState.SWEDE) ? kingValue : -kingValue);
+				if (board.getNumberPlayerPieces(1 - mover) < opponentPieces) {
+					bias += CAPTURE_BIAS;
+				}
+			}
+			board.unmakeMove();
+			return bias;
+		}
+
+		/**
+		 * Plays random moves until the game ends and returns the winner. The only
+		 * exception to random play is that the king takes a corner when it can, since
+		 * otherwise playouts would keep missing the one move that decides the game.
+		 */
+		private int playout() {
+			while (!board.gameOver()) {
+				int count = board.generateLegalMoves(moveBuffer);
+				int move = moveBuffer[nextRandom(count)];
+				if (board.getTurnPlayer() == TablutBoardState.SWEDE) {
+					// generateLegalMoves() lists the king's moves last.
+					for (int i = count - 1; i >= 0 && board.isKingMove(moveBuffer[i]); i--) {
+						int to = PackedMoves.to(moveBuffer[i]);
+						if (Coordinates.isCorner(Bitboards.row(to), Bitboards.column(to))) {
+							move = moveBuffer[i];
+							break;
+						}
+					}
+				}
+				board.makeMove(move);
+			}
+			return board.getWinner();
+		}
+
+		private int nextRandom(int bound) {
+			random ^= random << 13;
+			random ^= random >>> 7;
+			random ^= random << 17;
+			return (int) ((random >>> 33) % bound);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package student_player;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The search tree of MctsTablutPlayer, kept in a pool of parallel arrays rather
+ * than one object per node, so that a search allocates nothing once the pool
+ * exists. Node 0 is the root, and the children of a node are stored next to each
+ * other, from firstChild(node) to firstChild(node) + childCount(node) - 1.
+ *
+ * Several threads grow the same tree. The statistics are atomic, and a node is
+ * expanded by whichever thread wins the compare-and-set on its state; the others
+ * treat it as a leaf until the expansion is published. Visits are counted on the
+ * way down and results only on the way back up, so a node that another thread is
+ * still playing out from looks like a loss for a moment (a "virtual loss"), which
+ * steers the threads into different parts of the tree.
+ *
+ * Results are counted in half points, from the point of view of the player who
+ * made the move leading to the node: 2 for a win, 1 for a draw.
+ */
+public class MctsTree {
+	public static final int ROOT = 0;
+	public static final int NO_NODE = -1;
+
+	private static final int LEAF = 0;
+	private static final int EXPANDING = 1;
+	private static final int EXPANDED = 2;
+	private static final int FULL = 3; // the pool had no room left for the children
+
+	// Above any visited child's value, yet small enough that adding a bias to it
+	// still changes it, so that unvisited children are ordered by bias.
+	private static final double UNVISITED_VALUE = 1e9;
+
+	private final int capacity;
+	private final int[] moves;
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final float[] bias;
+	private final AtomicIntegerArray visits;
+	private final AtomicIntegerArray halfPoints;
+	private final AtomicIntegerArray state;
+	private final AtomicInteger size = new AtomicInteger();
+
+	public MctsTree(int capacity) {
+		this.capacity = capacity;
+		moves = new int[capacity];
+		firstChild = new int[capacity];
+		childCount = new int[capacity];
+		bias = new float[capacity];
+		visits = new AtomicIntegerArray(capacity);
+		halfPoints = new AtomicIntegerArray(capacity);
+		state = new AtomicIntegerArray(capacity);
+	}
+
+	/**
+	 * Empties the tree, leaving only an unexpanded root.
+	 */
+	public void reset() {
+		initialize(ROOT, 0, 0);
+		size.set(1);
+	}
+
+	public int size() {
+		return Math.min(size.get(), capacity);
+	}
+
+	/**
+	 * Claims the right to expand the node. Returns false if it is already expanded,
+	 * or another thread is expanding it.
+	 */
+	public boolean startExpansion(int node) {
+		return state.compareAndSet(node, LEAF, EXPANDING);
+	}
+
+	/**
+	 * Adds count children to a node claimed with startExpansion(), and returns the
+	 * first, or NO_NODE if the pool is full. The caller sets their moves and bias,
+	 * then publishes them with finishExpansion().
+	 */
+	public int allocateChildren(int node, int count) {
+		int first = size.getAndAdd(count);
+		if (first + count > capacity) {
+			state.set(node, FULL);
+			return NO_NODE;
+		}
+		for (int child = first; child < first + count; child++) {
+			initialize(child, 0, 0);
+		}
+		firstChild[node] = first;
+		childCount[node] = count;
+		return first;
+	}
+
+	public void setChild(int child, int move, double childBias) {
+		moves[child] = move;
+		bias[child] = (float) childBias;
+	}
+
+	public void finishExpansion(int node) {
+		state.set(node, EXPANDED);
+	}
+
+	public boolean isExpanded(int node) {
+		return state.get(node) == EXPANDED;
+	}
+
+	/* ----- Statistics ----- */
+
+	public void addVisit(int node) {
+		visits.incrementAndGet(node);
+	}
+
+	public void addResult(int node, int points) {
+		halfPoints.addAndGet(node, points);
+	}
+
+	public int visits(int node) {
+		return visits.get(node);
+	}
+
+	public int move(int node) {
+		return moves[node];
+	}
+
+	public int firstChild(int node) {
+		return firstChild[node];
+	}
+
+	public int childCount(int node) {
+		return childCount[node];
+	}
+
+	/**
+	 * Picks the child of an expanded node to descend into, by UCT with progressive
+	 * bias: the child's mean result, plus an exploration term, plus its heuristic
+	 * bias fading as 1 / (visits + 1). Unvisited children come first, best bias first.
+	 */
+	public int selectChild(int node, double exploration, double biasWeight) {
+		double logVisits = Math.log(Math.max(1, visits.get(node)));
+		int first = firstChild[node];
+		int end = first + childCount[node];
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int n = visits.get(child);
+			double value;
+			if (n == 0) {
+				value = UNVISITED_VALUE + bias[child];
+			} else {
+				value = halfPoints.get(child) / (2.0 * n) + exploration * Math.sqrt(logVisits / n)
+						+ biasWeight * bias[child] / (n + 1);
+			}
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the most visited child of an expanded node.
+	 */
+	public int mostVisitedChild(int node) {
+		int first = firstChild[node];
+		int best = first;
+		for (int child = first + 1; child < first + childCount[node]; child++) {
+			if (visits.get(child) > visits.get(best)) {
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	private void initialize(int node, int move, double nodeBias) {
+		moves[node] = move;
+		bias[node] = (float) nodeBias;
+		firstChild[node] = 0;
+		childCount[node] = 0;
+		visits.set(node, 0);
+		halfPoints.set(node, 0);
+		state.set(node, LEAF);
+	}
+}
@@ -0,0 +1,124 @@
+package student_player;
+
+import tablut.TablutBoardState;
+
+/**
+ * Orders moves so that alpha-beta finds its cutoffs early.
+ *
+ * Moves are tried in this order: the best move stored in the transposition table
+ * for the position, then captures, then king moves, then the killer moves of the
+ * ply (quiet moves that recently caused a cutoff at the same depth), and finally
+ * all other moves by their history score, which grows each time a move causes a
+ * cutoff anywhere in the tree.
+ *
+ * Moves are packed ints as produced by TablutBoardState.generateLegalMoves().
+ * Rather than sorting a whole move list up front, the search scores it with
+ * scoreMoves() and then pulls one move at a time with selectNext(), so that no
+ * sorting work is wasted on the moves left over after a cutoff.
+ */
+public class MoveOrdering {
+	private static final int KILLERS_PER_PLY = 2;
+	private static final int MOVE_INDICES = 1 << 14; // every packed move fits in 14 bits
+
+	private static final int HASH_MOVE_SCORE = 1 << 30;
+	private static final int CAPTURE_SCORE = 1 << 29;
+	private static final int KING_MOVE_SCORE = 1 << 28;
+	private static final int KILLER_SCORE = 1 << 27;
+	private static final int MAX_HISTORY = KILLER_SCORE - 1;
+
+	private final int[][] killers;
+	private final int[][] history = new int[2][MOVE_INDICES]; // indexed by player, then move
+
+	public MoveOrdering(int maxPly) {
+		killers = new int[maxPly + 1][KILLERS_PER_PLY];
+	}
+
+	/**
+	 * Forgets the killers of the previous search and halves the history scores, so
+	 * that they follow the current part of the game.
+	 */
+	public void newSearch() {
+		for (int[] plyKillers : killers) {
+			for (int i = 0; i < KILLERS_PER_PLY; i++) {
+				plyKillers[i] = 0;
+			}
+		}
+		for (int[] playerHistory : history) {
+			for (int i = 0; i < MOVE_INDICES; i++) {
+				playerHistory[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Scores the first count moves for selectNext(). hashMove is 0 if there is none.
+	 */
+	public void scoreMoves(TablutBoardState boardState, int[] moves, int[] scores, int count, int hashMove, int ply) {
+		int player = boardState.getTurnPlayer();
+		int[] plyKillers = killers[ply];
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int score;
+			if (move == hashMove) {
+				score = HASH_MOVE_SCORE;
+			} else if (boardState.isCapture(move)) {
+				score = CAPTURE_SCORE;
+			} else if (boardState.isKingMove(move)) {
+				score = KING_MOVE_SCORE;
+			} else if (move == plyKillers[0]) {
+				score = KILLER_SCORE + 1;
+			} else if (move == plyKillers[1]) {
+				score = KILLER_SCORE;
+			} else {
+				score = history[player][move];
+			}
+			scores[i] = score;
+		}
+	}
+
+	/**
+	 * Returns true if a score given by scoreMoves() is that of a quiet move: neither
+	 * the hash move, a capture, a king move nor a killer.
+	 */
+	public static boolean isQuiet(int score) {
+		return score < KILLER_SCORE;
+	}
+
+	/**
+	 * Moves the best-scored of moves[index] to moves[count - 1] into position index,
+	 * and returns it.
+	 */
+	public static int selectNext(int[] moves, int[] scores, int index, int count) {
+		int best = index;
+		for (int i = index + 1; i < count; i++) {
+			if (scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		int move = moves[best];
+		moves[best] = moves[index];
+		moves[index] = move;
+		int score = scores[best];
+		scores[best] = scores[index];
+		scores[index] = score;
+		return move;
+	}
+
+	/**
+	 * Records that move caused a beta cutoff at the given ply, with the given depth
+	 * left to search. Captures are already ordered early, so only quiet moves are
+	 * remembered.
+	 */
+	public void recordCutoff(TablutBoardState boardState, int move, int ply, int remainingDepth) {
+		if (boardState.isCapture(move)) {
+			return;
+		}
+		int[] plyKillers = killers[ply];
+		if (plyKillers[0] != move) {
+			plyKillers[1] = plyKillers[0];
+			plyKillers[0] = move;
+		}
+		int[] playerHistory = history[boardState.getTurnPlayer()];
+		playerHistory[move] = Math.min(MAX_HISTORY, playerHistory[move] + remainingDepth * remainingDepth);
+	}
+}
@@ -0,0 +1,86 @@
+package student_player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+
+/**
+ * Measures how the search scales with the number of threads.
+ *
+ * A fixed set of positions, reached by random moves from the start, is searched to
+ * a fixed depth with 1, 2, 4, ... threads, each time with a fresh player so that no
+ * transposition table entries carry over. For each thread count, the time to reach
+ * the depth, the nodes searched per second (over all threads), the share of
+ * cutoffs made by the first move and the transposition table hit rate are printed.
+ * The threads share the work as in the given StudentPlayer.ParallelMode.
+ *
+ * From the root directory of the project, after ant compile, run
+ *
+ *     java -cp bin student_player.SearchBenchmark [depth] [max_threads] [positions] [LAZY_SMP|ROOT_SPLIT]
+ */
+public class SearchBenchmark {
+	private static final int DEFAULT_DEPTH = 5;
+	private static final int DEFAULT_POSITIONS = 8;
+	private static final long SEED = 424;
+	private static final long NO_TIME_LIMIT = 24L * 60 * 60 * 1000;
+
+	public static void main(String[] args) {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int positionCount = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_POSITIONS;
+		StudentPlayer.ParallelMode mode = (args.length > 3) ? StudentPlayer.ParallelMode.valueOf(args[3])
+				: StudentPlayer.ParallelMode.LAZY_SMP;
+
+		List<TablutBoardState> positions = randomPositions(positionCount, new Random(SEED));
+		search(positions, depth, 1, mode); // let the JIT compile the search first
+		System.out.println("depth " + depth + ", " + positions.size() + " positions, " + mode);
+		System.out.println("threads     time (ms)    nodes/sec    speedup    fmc    tt_hit");
+		double singleThreadMillis = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			long start = System.nanoTime();
+			SearchStats stats = search(positions, depth, threads, mode);
+			double millis = (System.nanoTime() - start) / 1e6;
+			if (threads == 1) {
+				singleThreadMillis = millis;
+			}
+			System.out.println(String.format("%7d %13.0f %12.0f %10.2f %6.3f %9.3f", threads, millis,
+					stats.getNodes() / (millis / 1000), singleThreadMillis / millis, stats.getFirstMoveCutoffRate(),
+					stats.getTtHitRate()));
+		}
+	}
+
+	// Searches each position with a fresh player, and returns the statistics of all.
+	private static SearchStats search(List<TablutBoardState> positions, int depth, int threads,
+			StudentPlayer.ParallelMode mode) {
+		SearchStats total = new SearchStats(0);
+		for (TablutBoardState position : positions) {
+			StudentPlayer player = new StudentPlayer(TranspositionTable.DEFAULT_MEGABYTES, threads, mode);
+			player.setColor(position.getTurnPlayer());
+			player.setSearchLimits(depth, NO_TIME_LIMIT);
+			player.setLogStats(false);
+			player.chooseMove(position);
+			total.add(player.getLastSearchStats());
+		}
+		return total;
+	}
+
+	// Positions from the opening and early middle game, where most of the time goes.
+	private static List<TablutBoardState> randomPositions(int count, Random random) {
+		List<TablutBoardState> positions = new ArrayList<TablutBoardState>();
+		while (positions.size() < count) {
+			TablutBoardState boardState = new TablutBoardState();
+			int plies = 6 + random.nextInt(20);
+			for (int i = 0; i < plies && !boardState.gameOver(); i++) {
+				List<TablutMove> moves = boardState.getAllLegalMoves();
+				boardState.processMove(moves.get(random.nextInt(moves.size())));
+			}
+			if (!boardState.gameOver()) {
+				positions.add(boardState);
+			}
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,154 @@
+package student_player;
+
+import java.util.Locale;
+
+/**
+ * Counters describing one search, to find out why some moves are slow or shallow.
+ *
+ * Every search thread counts into its own SearchStats, which no other thread
+ * touches while the search runs, so counting costs a plain increment. Once the move
+ * is chosen, the main player adds its helpers' counters into its own with add().
+ * StudentPlayer prints the result to the client log as one line of key=value pairs
+ * (see toString()), and benchmarks can read it from getLastSearchStats().
+ */
+public class SearchStats {
+	long nodes;
+	long quiescenceNodes;
+	long evaluations;
+	long cutoffs;
+	long firstMoveCutoffs; // cutoffs by the first child searched
+	long ttProbes;
+	long ttHits;
+	long ttStores;
+	long ttWrites; // stores that were not refused by the replacement scheme
+	long evalCacheProbes;
+	long evalCacheHits;
+	long elapsedMillis;
+
+	// Only for the thread that decides the move: the iterations it completed.
+	private final long[] iterationMillis;
+	private int iterations;
+	private int depth;
+
+	public SearchStats(int maxIterations) {
+		iterationMillis = new long[maxIterations];
+	}
+
+	public void reset() {
+		nodes = 0;
+		quiescenceNodes = 0;
+		evaluations = 0;
+		cutoffs = 0;
+		firstMoveCutoffs = 0;
+		ttProbes = 0;
+		ttHits = 0;
+		ttStores = 0;
+		ttWrites = 0;
+		evalCacheProbes = 0;
+		evalCacheHits = 0;
+		elapsedMillis = 0;
+		iterations = 0;
+		depth = 0;
+	}
+
+	/**
+	 * Records that the iteration to the given depth completed, taking the given time.
+	 */
+	public void recordIteration(int iterationDepth, long millis) {
+		if (iterations < iterationMillis.length) {
+			iterationMillis[iterations++] = millis;
+		}
+		depth = iterationDepth;
+	}
+
+	/**
+	 * Adds the counters of a helper thread to these. The depth and iteration times
+	 * stay those of this thread.
+	 */
+	public void add(SearchStats other) {
+		nodes += other.nodes;
+		quiescenceNodes += other.quiescenceNodes;
+		evaluations += other.evaluations;
+		cutoffs += other.cutoffs;
+		firstMoveCutoffs += other.firstMoveCutoffs;
+		ttProbes += other.ttProbes;
+		ttHits += other.ttHits;
+		ttStores += other.ttStores;
+		ttWrites += other.ttWrites;
+		evalCacheProbes += other.evalCacheProbes;
+		evalCacheHits += other.evalCacheHits;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getQuiescenceNodes() {
+		return quiescenceNodes;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	// The depth of the last completed iteration.
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getIterationMillis(int iteration) {
+		return iterationMillis[iteration];
+	}
+
+	public double getNodesPerSecond() {
+		return (elapsedMillis == 0) ? 0 : nodes * 1000.0 / elapsedMillis;
+	}
+
+	// Share of the cutoffs caused by the first child: a measure of move ordering.
+	public double getFirstMoveCutoffRate() {
+		return rate(firstMoveCutoffs, cutoffs);
+	}
+
+	public double getTtHitRate() {
+		return rate(ttHits, ttProbes);
+	}
+
+	public double getTtStoreRate() {
+		return rate(ttWrites, ttStores);
+	}
+
+	public double getEvalCacheHitRate() {
+		return rate(evalCacheHits, evalCacheProbes);
+	}
+
+	private static double rate(long count, long total) {
+		return (total == 0) ? 0 : (double) count / total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder();
+		line.append("depth=").append(depth);
+		line.append(" nodes=").append(nodes);
+		line.append(" qnodes=").append(quiescenceNodes);
+		line.append(" nps=").append(Math.round(getNodesPerSecond()));
+		line.append(" ms=").append(elapsedMillis);
+		line.append(String.format(Locale.ROOT, " fmc=%.3f tt_hit=%.3f tt_store=%.3f", getFirstMoveCutoffRate(), getTtHitRate(),
+				getTtStoreRate()));
+		line.append(" evals=").append(evaluations);
+		line.append(String.format(Locale.ROOT, " eval_hit=%.3f", getEvalCacheHitRate()));
+		line.append(" iteration_ms=");
+		for (int i = 0; i < iterations; i++) {
+			line.append((i == 0) ? "" : ",").append(iterationMillis[i]);
+		}
+		return line.toString();
+	}
+}
@@ -1,93 +1,782 @@
 package student_player;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import boardgame.BoardState;
 import boardgame.Move;
+import tablut.PackedMoves;
 import tablut.TablutBoardState;
 import tablut.TablutMove;
 import tablut.TablutPlayer;
 
 /** Player file submitted by Ivelin Bratanov (260535395) */
 public class StudentPlayer extends TablutPlayer {
+    // Iterative deepening stops here even if there is time left.
+    private static final int MAX_DEPTH = 64;
+
+    // How far past the main search the quiescence search may go.
+    private static final int MAX_QUIESCENCE_DEPTH = 16;
+
+    // The clock is read once every this many + 1 nodes.
+    private static final int TIME_CHECK_INTERVAL = 255;
+
+    // Bounds of the full search window; wins and losses score beyond them.
+    private static final double MIN_SCORE = -10000;
+    private static final double MAX_SCORE = 10000;
+
+    // Width of the scout searches of principal variation search. Any positive width
+    // is correct; it only needs to be small next to differences in evaluation.
+    private static final double NULL_WINDOW = 0.01;
+
+    // Half-width of the root window around the previous iteration's score.
+    private static final double ASPIRATION_WINDOW = 1.0;
+
+    // Null-move pruning: how much shallower the search after a pass is, how deep a
+    // node must be to try it, and how many pieces the side to move needs for a pass
+    // to be safely worse than its best move (with very few pieces left, every move
+    // may hurt, and the pass would then overestimate the position).
+    private static final int NULL_MOVE_REDUCTION = 2;
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_MIN_PIECES = 5;
+
+    // Late move reductions: quiet moves from this many children on, at nodes this
+    // deep, are first searched one ply shallower, or two from LMR_DEEPER_CHILDREN on.
+    private static final int LMR_MIN_CHILDREN = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_DEEPER_CHILDREN = 8;
+
+    // System property giving the number of search threads for the no-argument
+    // constructor, e.g. java -Dstudent_player.threads=4 boardgame.Client ...
+    public static final String THREADS_PROPERTY = "student_player.threads";
+
+    // System property choosing how the threads share the work, e.g.
+    // -Dstudent_player.parallel=ROOT_SPLIT. See ParallelMode.
+    public static final String PARALLEL_MODE_PROPERTY = "student_player.parallel";
+
+    // System property turning the per-move search statistics in the client log off,
+    // with -Dstudent_player.stats=false.
+    public static final String STATS_PROPERTY = "student_player.stats";
+
+    // System property turning pondering on, e.g. -Dstudent_player.ponder=true.
+    public static final String PONDER_PROPERTY = "student_player.ponder";
+
+    // System property giving the size of the transposition table in megabytes for
+    // the no-argument constructor, e.g. -Dstudent_player.tt=256.
+    public static final String TT_PROPERTY = "student_player.tt";
+
+    // System property giving the size of the evaluation cache in megabytes, e.g.
+    // -Dstudent_player.evalcache=16, or 0 to turn it off. See EvalCache.
+    public static final String EVAL_CACHE_PROPERTY = "student_player.evalcache";
+
+    // System property naming the Evaluator class to use, e.g.
+    // -Dstudent_player.evaluator=student_player.TaperedEvaluator.
+    public static final String EVALUATOR_PROPERTY = "student_player.evaluator";
+
+    /**
+     * How the search uses more than one thread.
+     */
+    public enum ParallelMode {
+        /** Every thread searches the whole tree, sharing the transposition table. */
+        LAZY_SMP,
+        /**
+         * The first root move is searched alone to set a bound, then the other root
+         * moves are shared out between the threads, which all raise a common alpha.
+         */
+        ROOT_SPLIT
+    }
+
+    // State of the move currently being searched.
+    private TimeManager timeManager;
+    private boolean searchAborted;
+    private boolean bestMoveWins;
+    // The best move of the last completed iteration, for the client's watchdog.
+    private volatile TablutMove bestMoveSoFar;
+    /*
+     * The clock of the latest search, running or still waiting for searchLock, if any.
+     * A search takes it as its abort token when it is called, and getBestMoveSoFar()
+     * stops it, so an abort always reaches the search the client is waiting for.
+     */
+    private final AtomicReference<TimeManager> currentSearch = new AtomicReference<TimeManager>();
+    // Held for the whole of a search, which uses the buffers, statistics and history above.
+    private final Object searchLock = new Object();
+    private double rootScore;
+    private final SearchStats stats = new SearchStats(MAX_DEPTH);
+    private boolean logStats = Boolean.parseBoolean(System.getProperty(STATS_PROPERTY, "true"));
+    private int depthLimit = MAX_DEPTH;
+    private long moveTimeMillis = -1; // -1 to use the server's timeout
+
+    /*
+     * Lazy SMP: with more than one thread, helper players search the same root on
+     * their own threads, sharing this player's transposition table. They only help
+     * by filling the table; the move played is always the one found by this thread.
+     * Helpers with an odd index start one ply deeper, and each helper tries the root
+     * moves in a different order, so that they do not all search the same tree.
+     */
+    private final int threads;
+    private final ParallelMode parallelMode;
+    private final int helperIndex; // 0 for the main player
+    private StudentPlayer[] helpers;
+    private ExecutorService helperPool;
+    private ForkJoinPool splitPool;
+    private TablutBoardState splitState; // a helper's copy of the root, in ROOT_SPLIT mode
+
+    /*
+     * Pondering: after our move, the reply the search expects is played on a copy of
+     * the board and our answer to it is searched on a background thread while the
+     * opponent thinks. If the opponent does play that reply, the search is given the
+     * usual time limit and carries on; otherwise it is stopped straight away. Either
+     * way the transposition table keeps what it found.
+     */
+    private boolean pondering = Boolean.getBoolean(PONDER_PROPERTY);
+    private ExecutorService ponderThread;
+    private Future<TablutMove> ponderSearch;
+    private TimeManager ponderTime;
+    private TablutBoardState ponderState;
+    private boolean ponderHit;
+
+    // Survives from move to move, so that later searches can reuse earlier results.
+    private final TranspositionTable transpositionTable;
+    private final TranspositionTable.Entry ttEntry = new TranspositionTable.Entry();
+    private final EvalCache evalCache; // null when turned off
+    private Evaluator evaluator;
+    private final MoveOrdering moveOrdering = new MoveOrdering(MAX_DEPTH);
+
+    // One move list per ply, reused from node to node.
+    private final int[][] moveBuffers = new int[MAX_DEPTH + MAX_QUIESCENCE_DEPTH + 1][PackedMoves.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_DEPTH + 1][PackedMoves.MAX_MOVES];
 	
     /**
      * Constructor for StudentPlayer class
      */
     public StudentPlayer() {
+        this(Integer.getInteger(TT_PROPERTY, TranspositionTable.DEFAULT_MEGABYTES),
+                Integer.getInteger(THREADS_PROPERTY, 1),
+                ParallelMode.valueOf(System.getProperty(PARALLEL_MODE_PROPERTY, ParallelMode.LAZY_SMP.name())));
+    }
+
+    /**
+     * Creates the player with a transposition table of the given size. The default
+     * leaves most of the 520 MB heap Autoplay gives each client free.
+     */
+    public StudentPlayer(int transpositionTableMegabytes) {
+        this(transpositionTableMegabytes, 1);
+    }
+
+    /**
+     * Creates the player with a transposition table of the given size, searching
+     * with the given number of threads.
+     */
+    public StudentPlayer(int transpositionTableMegabytes, int threads) {
+        this(transpositionTableMegabytes, threads, ParallelMode.LAZY_SMP);
+    }
+
+    /**
+     * Creates the player with a transposition table of the given size, searching
+     * with the given number of threads shared out as parallelMode says.
+     */
+    public StudentPlayer(int transpositionTableMegabytes, int threads, ParallelMode parallelMode) {
         super("260535395");
+        transpositionTable = new TranspositionTable(transpositionTableMegabytes);
+        int evalCacheMegabytes = Integer.getInteger(EVAL_CACHE_PROPERTY, EvalCache.DEFAULT_MEGABYTES);
+        evalCache = (evalCacheMegabytes > 0) ? new EvalCache(evalCacheMegabytes) : null;
+        evaluator = createEvaluator(System.getProperty(EVALUATOR_PROPERTY, HandTunedEvaluator.class.getName()));
+        this.threads = Math.max(1, threads);
+        this.parallelMode = parallelMode;
+        helperIndex = 0;
+    }
+
+    // Creates a Lazy SMP helper sharing the main player's transposition table,
+    // evaluation cache and evaluator.
+    private StudentPlayer(StudentPlayer mainPlayer, int helperIndex) {
+        super(mainPlayer.getName());
+        transpositionTable = mainPlayer.transpositionTable;
+        evalCache = mainPlayer.evalCache;
+        evaluator = mainPlayer.evaluator;
+        threads = 1;
+        parallelMode = mainPlayer.parallelMode;
+        this.helperIndex = helperIndex;
+    }
+
+    /**
+     * Creates an evaluator from the name of its class, which needs a public
+     * no-argument constructor.
+     */
+    public static Evaluator createEvaluator(String className) {
+        try {
+            return (Evaluator) Class.forName(className).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create evaluator " + className, e);
+        }
+    }
+
+    /**
+     * Makes the following searches use the given evaluation instead of the one
+     * chosen when the player was created.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        if (helpers != null) {
+            for (StudentPlayer helper : helpers) {
+                helper.evaluator = evaluator;
+            }
+        }
+        if (evalCache != null) {
+            evalCache.clear(); // its values came from the old evaluation
+        }
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Limits the following searches to the given depth and time per move, instead of
+     * searching as deep as the server's timeout allows. For benchmarks; a negative
+     * time restores the server's timeout.
+     */
+    public void setSearchLimits(int depthLimit, long moveTimeMillis) {
+        this.depthLimit = Math.min(MAX_DEPTH, depthLimit);
+        this.moveTimeMillis = moveTimeMillis;
+    }
+
+    /**
+     * Turns pondering on the opponent's time on or off.
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+        if (!pondering) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * Turns the line of search statistics printed after every move on or off.
+     */
+    public void setLogStats(boolean logStats) {
+        this.logStats = logStats;
+    }
+
+    /**
+     * Returns the statistics of the last search, over all threads. They are only
+     * valid until the next search starts.
+     */
+    public SearchStats getLastSearchStats() {
+        return stats;
     }
 
     /**
      * Selects a move using Minimax tree search and returns the best move found
      */
     public Move chooseMove(TablutBoardState boardState) {
-        // Pass all legal moves for the current board state to Minimax algorithm.                
-        return minimaxDecision(boardState.getAllLegalMoves(), boardState);
+        return chooseMove(boardState, TimeManager.budgetForTurn(boardState.getTurnNumber()));
+    }
+
+    /**
+     * Selects a move as chooseMove(TablutBoardState) does, within the given time. The
+     * client calls this on a worker thread, since this player is deadline-aware.
+     */
+    @Override
+    public Move chooseMove(TablutBoardState boardState, long timeLeftMillis) {
+        long budget = (moveTimeMillis >= 0) ? moveTimeMillis : timeLeftMillis;
+        TablutMove move = finishPondering(budget);
+        if (move == null) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null; // the client has given up on this move and played another
+            }
+            // Pass all legal moves for the current board state to Minimax algorithm.                
+            move = search(boardState.getAllLegalMoves(), boardState, new TimeManager(budget));
+        }
+        if (logStats) {
+            System.out.println("search turn=" + boardState.getTurnNumber() + " player=" + player_id + " "
+                    + stats);
+        }
+        return move;
+    }
+
+    @Override
+    public boolean isDeadlineAware() {
+        return true;
+    }
+
+    /**
+     * Also stops the search in progress, since the client abandons it: left running,
+     * it would hold up the next search.
+     */
+    @Override
+    public Move getBestMoveSoFar() {
+        TimeManager time = currentSearch.get();
+        if (time != null) {
+            time.stop(); // the search notices at its next time check
+        }
+        return bestMoveSoFar;
+    }
+
+    /**
+     * Starts pondering after our own move, and on the opponent's move either lets the
+     * pondering search go on, for chooseMove() to give a time limit, or stops it.
+     */
+    @Override
+    public void movePlayed(BoardState board_state, Move move) {
+        if (!pondering) {
+            return;
+        }
+        TablutBoardState boardState = (TablutBoardState) board_state;
+        if (move.getPlayerID() == player_id) {
+            startPondering(boardState);
+        } else if (ponderSearch != null && boardState.getTurnNumber() == ponderState.getTurnNumber()
+                && boardState.getHashKey() == ponderState.getHashKey() && boardState.equals(ponderState)) {
+            ponderHit = true;
+        } else {
+            stopPondering();
+        }
+    }
+
+    @Override
+    public void gameOver(String msg, BoardState bs) {
+        stopPondering();
+    }
+
+    // Plays the expected reply on a copy of the board and starts searching our answer.
+    private void startPondering(TablutBoardState boardState) {
+        stopPondering();
+        if (boardState.gameOver()) {
+            return;
+        }
+        int reply = TranspositionTable.move(transpositionTable.probe(TranspositionTable.key(boardState)));
+        if (reply == 0 || !boardState.isLegal(reply)) {
+            return; // no idea what the opponent will play
+        }
+        final TablutBoardState state = (TablutBoardState) boardState.clone();
+        state.processMove(PackedMoves.toTablutMove(reply, state.getTurnPlayer()));
+        if (state.gameOver()) {
+            return;
+        }
+        if (ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "StudentPlayer ponder");
+                    thread.setDaemon(true); // never keep the client alive
+                    return thread;
+                }
+            });
+        }
+        final TimeManager time = TimeManager.forPondering();
+        ponderState = state;
+        ponderTime = time;
+        ponderHit = false;
+        ponderSearch = ponderThread.submit(new Callable<TablutMove>() {
+            @Override
+            public TablutMove call() {
+                return search(state.getAllLegalMoves(), state, time);
+            }
+        });
+    }
+
+    /**
+     * After a ponder hit, gives the pondering search the move's budget, waits for it
+     * and returns its move. Otherwise stops it and returns null. If this thread is
+     * interrupted while waiting, the search is stopped and null is returned.
+     */
+    private TablutMove finishPondering(long budgetMillis) {
+        if (ponderSearch == null) {
+            return null;
+        }
+        if (!ponderHit) {
+            stopPondering();
+            return null;
+        }
+        ponderTime.restart(budgetMillis);
+        TablutMove move = null;
+        try {
+            move = ponderSearch.get();
+        } catch (InterruptedException e) {
+            // Left set, so that whoever comes next waits for the search to give up.
+            ponderTime.stop();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        ponderSearch = null;
+        return move;
+    }
+
+    // Stops the pondering search, if any, and waits the moment it takes to give up.
+    private void stopPondering() {
+        if (ponderSearch == null) {
+            return;
+        }
+        ponderTime.stop();
+        try {
+            ponderSearch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return; // still stopping; left set for the next call to wait on
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        ponderSearch = null;
     }
     
     /**
      * This is the core method for selecting which move to play.
-     * It follows the pseudo-code for minimaxDecision shown in the class slides.
+     * It follows the pseudo-code for minimaxDecision shown in the class slides,
+     * wrapped in iterative deepening.
+     * 
+     * The root moves are searched to depth 1, then 2, and so on, for as long as the
+     * TimeManager expects the next iteration to finish within the server's timeout.
+     * An iteration that runs out of time is abandoned, and the best move of the last
+     * completed iteration is returned. Each iteration searches the previous best
+     * move first.
+     */
+    public TablutMove minimaxDecision(List<TablutMove> moves, TablutBoardState boardState) {
+    	long budget = (moveTimeMillis >= 0) ? moveTimeMillis : TimeManager.budgetForTurn(boardState.getTurnNumber());
+    	return search(moves, boardState, new TimeManager(budget));
+    }
+
+    /*
+     * Runs minimaxDecision() on the given clock, which pondering hands in itself. A
+     * search the client gave up on may still be running on another thread; it is
+     * stopped, and this one waits for it to finish before reusing its state.
+     */
+    private TablutMove search(List<TablutMove> moves, TablutBoardState boardState, TimeManager time) {
+    	TimeManager stale = currentSearch.getAndSet(time);
+    	if (stale != null) {
+    		stale.stop();
+    	}
+    	bestMoveSoFar = null;
+    	synchronized (searchLock) {
+    		try {
+    			return searchLocked(moves, boardState, time);
+    		} finally {
+    			currentSearch.compareAndSet(time, null);
+    		}
+    	}
+    }
+
+    // Publishes the main search's best move for the watchdog, unless a newer search has replaced it.
+    private void setBestMoveSoFar(TablutMove move) {
+    	if (currentSearch.get() == timeManager) {
+    		bestMoveSoFar = move;
+    	}
+    }
+
+    private TablutMove searchLocked(List<TablutMove> moves, TablutBoardState boardState, TimeManager time) {
+    	transpositionTable.newSearch();
+
+    	List<Future<?>> helperSearches = new ArrayList<Future<?>>();
+    	if (threads > 1 && parallelMode == ParallelMode.LAZY_SMP) {
+    		helperSearches = startHelpers(moves, boardState, time);
+    	} else if (threads > 1) {
+    		prepareSplitHelpers(boardState, time);
+    	}
+    	TablutMove bestMove = iterativeDeepening(moves, boardState, time);
+    	if (!helperSearches.isEmpty()) {
+    		// The helpers notice within a few hundred nodes and give up.
+    		time.stop();
+    		for (Future<?> search : helperSearches) {
+    			try {
+    				search.get();
+    			} catch (InterruptedException e) {
+    				Thread.currentThread().interrupt();
+    			} catch (ExecutionException e) {
+    				e.getCause().printStackTrace();
+    			}
+    		}
+    	}
+    	if (helpers != null) {
+    		for (StudentPlayer helper : helpers) {
+    			stats.add(helper.stats);
+    		}
+    	}
+    	stats.elapsedMillis = time.elapsedMillis();
+    	return bestMove;
+    }
+
+    private void createHelpers() {
+    	if (helpers != null) {
+    		return;
+    	}
+    	helpers = new StudentPlayer[threads - 1];
+    	for (int i = 0; i < helpers.length; i++) {
+    		helpers[i] = new StudentPlayer(this, i + 1);
+    	}
+    }
+
+    // Sets the helpers searching the same root on their own threads (LAZY_SMP).
+    private List<Future<?>> startHelpers(final List<TablutMove> moves, final TablutBoardState boardState,
+            final TimeManager time) {
+    	List<Future<?>> searches = new ArrayList<Future<?>>();
+    	if (helperPool == null) {
+    		createHelpers();
+    		helperPool = Executors.newFixedThreadPool(helpers.length, new ThreadFactory() {
+    			@Override
+    			public Thread newThread(Runnable runnable) {
+    				Thread thread = new Thread(runnable, "StudentPlayer helper");
+    				thread.setDaemon(true); // never keep the client alive
+    				return thread;
+    			}
+    		});
+    	}
+    	for (final StudentPlayer helper : helpers) {
+    		helper.setColor(player_id);
+    		helper.depthLimit = depthLimit;
+    		searches.add(helperPool.submit(new Runnable() {
+    			@Override
+    			public void run() {
+    				helper.iterativeDeepening(moves, boardState, time);
+    			}
+    		}));
+    	}
+    	return searches;
+    }
+
+    // Gives each helper its own copy of the root for searchRootInParallel (ROOT_SPLIT).
+    private void prepareSplitHelpers(TablutBoardState boardState, TimeManager time) {
+    	if (splitPool == null) {
+    		createHelpers();
+    		splitPool = new ForkJoinPool(threads); // its worker threads are daemons
+    	}
+    	for (StudentPlayer helper : helpers) {
+    		helper.setColor(player_id);
+    		helper.timeManager = time;
+    		helper.stats.reset();
+    		helper.moveOrdering.newSearch();
+    		helper.splitState = (TablutBoardState) boardState.clone();
+    	}
+    }
+
+    /**
+     * The iterative deepening loop of minimaxDecision, run by the main player and by
+     * each helper. Only the main player decides when to stop deepening; helpers keep
+     * going until the search is stopped.
+     */
+    private TablutMove iterativeDeepening(List<TablutMove> moves, TablutBoardState boardState, TimeManager time) {
+    	timeManager = time;
+    	searchAborted = false;
+    	stats.reset();
+    	moveOrdering.newSearch();
+    	boolean isHelper = helperIndex > 0;
+
+    	// The whole search makes and unmakes moves on this one copy of the board.
+    	TablutBoardState searchState = (TablutBoardState) boardState.clone();
+
+    	List<TablutMove> orderedMoves = new ArrayList<TablutMove>(moves);
+    	if (isHelper) {
+    		Collections.rotate(orderedMoves, helperIndex);
+    	}
+    	TablutMove bestMove = orderedMoves.get(0);
+    	if (!isHelper) {
+    		setBestMoveSoFar(bestMove);
+    	}
+    	boolean haveScore = false;
+    	for (int maxDepth = 1 + helperIndex % 2; maxDepth <= depthLimit
+    			&& (isHelper ? !time.isTimeUp() : time.startIteration()); maxDepth++) {
+    		long iterationStart = System.nanoTime();
+    		/*
+    		 * Aspiration window: expect the score to stay near the previous iteration's, and
+    		 * search with a narrow window around it. If the score falls outside, search
+    		 * again with that side of the window opened up.
+    		 */
+    		boolean aspirate = haveScore && rootScore > MIN_SCORE && rootScore < MAX_SCORE;
+    		double alpha = aspirate ? Math.max(MIN_SCORE, rootScore - ASPIRATION_WINDOW) : MIN_SCORE;
+    		double beta = aspirate ? Math.min(MAX_SCORE, rootScore + ASPIRATION_WINDOW) : MAX_SCORE;
+    		TablutMove iterationBest;
+    		while (true) {
+    			iterationBest = searchRoot(orderedMoves, searchState, maxDepth, alpha, beta);
+    			if (searchAborted || bestMoveWins) {
+    				break;
+    			} else if (rootScore <= alpha && alpha > MIN_SCORE) {
+    				alpha = MIN_SCORE;
+    			} else if (rootScore >= beta && beta < MAX_SCORE) {
+    				beta = MAX_SCORE;
+    			} else {
+    				break;
+    			}
+    		}
+    		if (searchAborted) {
+    			break; // the partial iteration is not trusted
+    		}
+    		if (!isHelper) {
+    			time.finishIteration();
+    		}
+    		stats.recordIteration(maxDepth, (System.nanoTime() - iterationStart) / 1000000L);
+    		bestMove = iterationBest;
+    		if (!isHelper) {
+    			setBestMoveSoFar(bestMove);
+    		}
+    		haveScore = true;
+
+    		// Shortcut which exits if we find a winning move.
+    		if (bestMoveWins) {
+    			break;
+    		}
+    		orderedMoves.remove(bestMove);
+    		orderedMoves.add(0, bestMove);
+    	}
+    	return bestMove;
+    }
+
+    /**
+     * Searches every root move to the given depth within the window (alpha, beta),
+     * returns the best one and leaves its score in rootScore. A rootScore at or
+     * below alpha, or at or above beta, only bounds the true score.
      * 
      * It implements represents the initial branching of the current node, processing
      * each of the available moves and then calling minimaxValue() to evaluate the value
      * of the move by traversing the game state tree using minimax with alpha-beta pruning.
+     * As in minimaxValue(), moves after the first are scouted with a null window.
      */
-    public TablutMove minimaxDecision(List<TablutMove> moves, TablutBoardState boardState) {
-    	// Keeps track of when the move was started in order to avoid timeouts
-    	long moveStartTime = System.currentTimeMillis();
-    	
-    	// Stores the value of every possible move for the current board state.
-        double[] moveValue = new double [moves.size()];
-    	
-        // This was found to be the max depth value which causes minimal timeouts
-    	int maxDepth = 3;
-    	
-    	/*
-    	 * Iterate through all possible moves and assign a value to each of them using mimimax
-    	 * (with α - β pruning) and the evaluation function.
-    	 */
-    	int curMoveIdx = 0;
+    private TablutMove searchRoot(List<TablutMove> moves, TablutBoardState boardState, int maxDepth, double alpha,
+            double beta) {
+        bestMoveWins = false;
+        TablutMove bestMove = null;
     	for (TablutMove curMove: moves) {
-    		
-    		// Evaluating a move to depth 3 takes up to 60ms in most cases, thus if we reach 1940ms, return the best move found thus far
-    		if (System.currentTimeMillis() - moveStartTime > 1940) {
-    	    	return moves.get(getHighestValueMove(moveValue));
+    		if (bestMove != null && splitPool != null && parallelMode == ParallelMode.ROOT_SPLIT) {
+    			// The first move has set alpha; the rest can be searched side by side.
+    			return searchRootInParallel(moves, boardState, maxDepth, alpha, beta, bestMove);
     		}
-
-    		// Clone the board state and apply the move to obtain the new game state and evaluate it using minimax
-            TablutBoardState clonedBoardState = (TablutBoardState) boardState.clone();
-            clonedBoardState.processMove(curMove); // apply the operator o and obtain the new game state s.
+    		// Apply the move to obtain the new game state and evaluate it using minimax
+            boardState.makeMove(curMove); // apply the operator o and obtain the new game state s.
             
             // Shortcut which exits if we find a winning move.
-            if (clonedBoardState.getWinner() == player_id) {
+            if (boardState.getWinner() == player_id) {
+            	boardState.unmakeMove();
+            	bestMoveWins = true;
             	return curMove;
             }
             
-            // start with alpha & beta = -10K/10K and initial depth 1
-            moveValue[curMoveIdx] = minimaxValue(clonedBoardState, -10000, 10000, 1, maxDepth); // Value[o] = MinimaxValue(s)
-            curMoveIdx++;
+            double value; // Value[o] = MinimaxValue(s)
+            if (bestMove == null) {
+            	value = minimaxValue(boardState, alpha, beta, 1, maxDepth);
+            } else {
+            	value = minimaxValue(boardState, alpha, Math.min(beta, alpha + NULL_WINDOW), 1, maxDepth);
+            	if (value > alpha && value < beta) {
+            		value = minimaxValue(boardState, alpha, beta, 1, maxDepth);
+            	}
+            }
+            boardState.unmakeMove();
+            if (searchAborted) {
+            	return null;
+            }
+
+            // Keep the operator with the highest value Value[o].
+            if (bestMove == null || value > alpha) {
+            	bestMove = curMove;
+            }
+            alpha = Math.max(alpha, value);
+            if (alpha >= beta) {
+            	break; // above the aspiration window
+            }
     	}
-    	
-    	//return the operator with the highest value Value[o] by finding its index in the moves list
-    	return moves.get(getHighestValueMove(moveValue));
+    	rootScore = alpha;
+    	return bestMove;
     }
-    
+
     /**
-     * Helper method to iterate through the moveValue array and return
-     * the index of the highest valued move. 
+     * Finishes searchRoot() in ROOT_SPLIT mode, once the first move has been searched
+     * with the result (alpha, bestMove). The other root moves are handed out one at a
+     * time to tasks run by this player and its helpers, so a thread that draws short
+     * subtrees simply takes more moves. Every task scouts its move with a null window
+     * at the best score found so far by any task, and searches it fully only if it
+     * beats that score.
      */
-    public int getHighestValueMove(double [] moveValue) {
-    	double maxValue = moveValue[0];
-    	int maxIdx = 0; 
-    	for(int i = 1; i < moveValue.length; i++) {
-    		if (moveValue[i] > maxValue) {
-    			maxValue = moveValue[i];
-    			maxIdx = i;
+    private TablutMove searchRootInParallel(final List<TablutMove> moves, final TablutBoardState boardState,
+            final int maxDepth, double alpha, final double beta, TablutMove firstMove) {
+    	// Immediate wins are checked for here rather than in every task.
+    	for (int i = 1; i < moves.size(); i++) {
+    		TablutMove move = moves.get(i);
+    		boardState.makeMove(move);
+    		boolean wins = boardState.getWinner() == player_id;
+    		boardState.unmakeMove();
+    		if (wins) {
+    			bestMoveWins = true;
+    			return move;
+    		}
+    	}
+
+    	final SplitResult result = new SplitResult(alpha, firstMove);
+    	final AtomicInteger nextMove = new AtomicInteger(1);
+    	List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+    	for (int i = 0; i <= helpers.length; i++) {
+    		final StudentPlayer worker = (i == 0) ? this : helpers[i - 1];
+    		final TablutBoardState workerState = (i == 0) ? boardState : worker.splitState;
+    		tasks.add(new Callable<Void>() {
+    			@Override
+    			public Void call() {
+    				worker.searchAborted = false;
+    				int index;
+    				while ((index = nextMove.getAndIncrement()) < moves.size() && !worker.searchAborted) {
+    					double sharedAlpha = result.alpha();
+    					if (sharedAlpha >= beta) {
+    						break; // above the aspiration window
+    					}
+    					TablutMove move = moves.get(index);
+    					workerState.makeMove(move);
+    					double value = worker.minimaxValue(workerState, sharedAlpha,
+    							Math.min(beta, sharedAlpha + NULL_WINDOW), 1, maxDepth);
+    					if (value > sharedAlpha && value < beta) {
+    						value = worker.minimaxValue(workerState, sharedAlpha, beta, 1, maxDepth);
+    					}
+    					workerState.unmakeMove();
+    					if (!worker.searchAborted) {
+    						result.offer(value, move);
+    					}
+    				}
+    				return null;
+    			}
+    		});
+    	}
+    	splitPool.invokeAll(tasks);
+    	for (StudentPlayer helper : helpers) {
+    		searchAborted |= helper.searchAborted;
+    	}
+    	if (searchAborted) {
+    		return null;
+    	}
+    	rootScore = result.alpha();
+    	return result.bestMove();
+    }
+
+    /**
+     * The best root move found so far by the tasks of searchRootInParallel(), and the
+     * alpha they all search with.
+     */
+    private static class SplitResult {
+    	private volatile double alpha;
+    	private TablutMove bestMove;
+
+    	SplitResult(double alpha, TablutMove bestMove) {
+    		this.alpha = alpha;
+    		this.bestMove = bestMove;
+    	}
+
+    	double alpha() {
+    		return alpha;
+    	}
+
+    	synchronized TablutMove bestMove() {
+    		return bestMove;
+    	}
+
+    	synchronized void offer(double value, TablutMove move) {
+    		if (value > alpha) {
+    			alpha = value;
+    			bestMove = move;
     		}
     	}
-    	return maxIdx;
     }
     
     /**
@@ -99,47 +788,288 @@ public class StudentPlayer extends TablutPlayer {
      * "leaf" nodes when the maximum intended depth is reached.
      */
     public double minimaxValue(TablutBoardState boardState, double alpha, double beta, int depth, int maxDepth) {
+    	// Give up on the iteration once time is up; the value returned is then ignored.
+    	if (searchAborted || ((++stats.nodes & TIME_CHECK_INTERVAL) == 0 && timeManager.isTimeUp())) {
+    		searchAborted = true;
+    		return 0;
+    	}
+
     	// if isTerminal(s), return Utility(s) based on board state
     	if (boardState.gameOver()) {
-    		int winner = boardState.getWinner();
-    		if (winner == player_id) {
-    			return 50000;
-    		} else if (winner == 1 - player_id) {
-    			return -50000;
-    		} else {
-    			// In the case of a draw we return 0 because we'll have reached 100 moves and all other leaves will either be win, loss, or draw
-        		return 0;
-    		}
-    	} else if (depth == maxDepth) { // If we've reached the maximum decided depth, evaluate and return this value
-    		return MyTools.evaluation(boardState, player_id);
+    		return utility(boardState);
+    	} else if (depth == maxDepth) { // If we've reached the maximum decided depth, resolve captures and evaluate
+    		return quiescenceValue(boardState, alpha, beta, depth, maxDepth);
     	} else { // Otherwise, continue to generate and explore the search tree
-    		ArrayList<TablutBoardState> successors = getSuccessors(boardState);
-        	
-    		if (player_id == boardState.getTurnPlayer()) { // if Max player is to move in s, return maxs’ Value(s’).
-            	for (TablutBoardState sucState: successors) { // for each state s’ in Successors(s)
-        			// let α = max { α, MinValues(s’,α,β) }.
-            		alpha = Math.max(alpha, minimaxValue(sucState, alpha, beta, depth + 1, maxDepth)); // let Value(s’) = MinimaxValue(s’)
-            		if (alpha >= beta) { // if α ≥ β, return β.
-            			return beta;
-            		}
-            	}
+    		// A deep enough result for this position from another move order may settle it.
+    		long key = TranspositionTable.key(boardState);
+    		int remainingDepth = maxDepth - depth;
+    		long entry = transpositionTable.probe(key, ttEntry);
+    		stats.ttProbes++;
+    		if (entry != TranspositionTable.MISS) {
+    			stats.ttHits++;
+    		}
+    		if (entry != TranspositionTable.MISS && TranspositionTable.depth(entry) >= remainingDepth) {
+    			double score = ttEntry.score;
+    			int bound = TranspositionTable.bound(entry);
+    			if (bound == TranspositionTable.EXACT) {
+    				return Math.max(alpha, Math.min(beta, score));
+    			} else if (bound == TranspositionTable.LOWER_BOUND && score >= beta) {
+    				return beta;
+    			} else if (bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+    				return alpha;
+    			}
+    		}
+
+    		/*
+    		 * Children are generated lazily, in stages, and each one is applied to this same
+    		 * board state and taken back after it has been searched. The hash move is tried
+    		 * before any moves are generated; the rest are then picked one at a time in
+    		 * MoveOrdering order. After a cutoff, the remaining children cost nothing.
+    		 */
+    		boolean isMaxNode = player_id == boardState.getTurnPlayer();
+    		boolean isPvNode = beta - alpha > 2 * NULL_WINDOW;
 
+    		/*
+    		 * Null-move pruning: let the side to move pass, and search the reply with less
+    		 * depth. If the position is still outside the window even after passing, a real
+    		 * move would only do better, so the node is cut off without searching any.
+    		 */
+    		if (!isPvNode && remainingDepth >= NULL_MOVE_MIN_DEPTH && !boardState.isAfterNullMove()
+    				&& boardState.getNumberPlayerPieces(boardState.getTurnPlayer()) >= NULL_MOVE_MIN_PIECES) {
+    			double staticValue = evaluate(boardState);
+    			if (isMaxNode ? staticValue >= beta : staticValue <= alpha) {
+    				boardState.makeNullMove();
+    				double value = isMaxNode
+    						? minimaxValue(boardState, Math.max(alpha, beta - NULL_WINDOW), beta, depth + 1,
+    								maxDepth - NULL_MOVE_REDUCTION)
+    						: minimaxValue(boardState, alpha, Math.min(beta, alpha + NULL_WINDOW), depth + 1,
+    								maxDepth - NULL_MOVE_REDUCTION);
+    				boardState.unmakeMove();
+    				if (searchAborted) {
+    					return 0;
+    				}
+    				if (isMaxNode && value >= beta) {
+    					return beta;
+    				} else if (!isMaxNode && value <= alpha) {
+    					return alpha;
+    				}
+    			}
+    		}
+
+    		double originalAlpha = alpha;
+    		double originalBeta = beta;
+    		int[] moves = moveBuffers[depth];
+    		int[] scores = scoreBuffers[depth];
+    		int hashMove = (entry == TranspositionTable.MISS) ? 0 : TranspositionTable.move(entry);
+    		boolean tryHashMove = hashMove != 0 && boardState.isLegal(hashMove);
+    		boolean hashMoveSearched = tryHashMove;
+    		int moveCount = -1; // not generated yet
+    		int nextMove = 0;
+    		int bestMove = 0;
+    		int childrenSearched = 0;
+    		while (true) {
+    			int move;
+    			boolean isQuiet = false;
+    			if (tryHashMove) {
+    				move = hashMove;
+    				tryHashMove = false;
+    			} else {
+    				if (moveCount < 0) {
+    					moveCount = boardState.generateLegalMoves(moves);
+    					moveOrdering.scoreMoves(boardState, moves, scores, moveCount, hashMove, depth);
+    				}
+    				if (nextMove == moveCount) {
+    					break;
+    				}
+    				move = MoveOrdering.selectNext(moves, scores, nextMove++, moveCount);
+    				if (move == hashMove && hashMoveSearched) {
+    					continue; // already searched in the first stage
+    				}
+    				isQuiet = MoveOrdering.isQuiet(scores[nextMove - 1]);
+    			}
+
+    			/*
+    			 * Principal variation search: the first child is searched with the full window.
+    			 * The others are expected to be worse, which a null-window scout search proves
+    			 * cheaply; only if the scout fails does the child get a full re-search.
+    			 * 
+    			 * Late move reductions: quiet moves ordered late rarely turn out best, so their
+    			 * scout search is first made shallower. If even that fails to show the move is
+    			 * worse, it is scouted again at full depth.
+    			 */
+    			int reduction = 0;
+    			if (isQuiet && childrenSearched >= LMR_MIN_CHILDREN && remainingDepth >= LMR_MIN_DEPTH) {
+    				reduction = (childrenSearched >= LMR_DEEPER_CHILDREN && remainingDepth > LMR_MIN_DEPTH) ? 2 : 1;
+    			}
+    			boardState.makeMove(move); // for each state s’ in Successors(s)
+    			double value; // let Value(s’) = MinimaxValue(s’)
+    			if (childrenSearched == 0) {
+    				value = minimaxValue(boardState, alpha, beta, depth + 1, maxDepth);
+    			} else if (isMaxNode) {
+    				double scoutBeta = Math.min(beta, alpha + NULL_WINDOW);
+    				value = scoutBeta;
+    				if (reduction > 0) {
+    					value = minimaxValue(boardState, alpha, scoutBeta, depth + 1, maxDepth - reduction);
+    				}
+    				if (value > alpha) {
+    					value = minimaxValue(boardState, alpha, scoutBeta, depth + 1, maxDepth);
+    				}
+    				if (value > alpha && value < beta) {
+    					value = minimaxValue(boardState, alpha, beta, depth + 1, maxDepth);
+    				}
+    			} else {
+    				double scoutAlpha = Math.max(alpha, beta - NULL_WINDOW);
+    				value = scoutAlpha;
+    				if (reduction > 0) {
+    					value = minimaxValue(boardState, scoutAlpha, beta, depth + 1, maxDepth - reduction);
+    				}
+    				if (value < beta) {
+    					value = minimaxValue(boardState, scoutAlpha, beta, depth + 1, maxDepth);
+    				}
+    				if (value < beta && value > alpha) {
+    					value = minimaxValue(boardState, alpha, beta, depth + 1, maxDepth);
+    				}
+    			}
+    			boardState.unmakeMove();
+    			childrenSearched++;
+    			if (searchAborted) {
+    				return 0;
+    			}
+
+    			if (isMaxNode) { // let α = max { α, MinValues(s’,α,β) }.
+    				if (value > alpha) {
+    					alpha = value;
+    					bestMove = move;
+    				}
+    			} else { // let β = min { β, MinValues(s’,α,β) }.
+    				if (value < beta) {
+    					beta = value;
+    					bestMove = move;
+    				}
+    			}
+    			if (alpha >= beta) { // if α ≥ β, return β (Max) or α (Min).
+    				moveOrdering.recordCutoff(boardState, move, depth, remainingDepth);
+    				stats.cutoffs++;
+    				if (childrenSearched == 1) {
+    					stats.firstMoveCutoffs++;
+    				}
+    				double bound = isMaxNode ? beta : alpha;
+    				store(key, remainingDepth,
+    						isMaxNode ? TranspositionTable.LOWER_BOUND : TranspositionTable.UPPER_BOUND, bound, move);
+    				return bound;
+    			}
+    		}
+
+    		if (isMaxNode) {
+    			int bound = (alpha > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+    			store(key, remainingDepth, bound, alpha, bestMove);
     			return alpha; // return α.
-    		} else { // if Min player is to move in s, return mins’ Value(s’).
-
-            	for (TablutBoardState sucState: successors) { // for each state s’ in Successors(s)
-            		// let β = min { β, MinValues(s’,α,β) }.
-            		beta = Math.min(beta, minimaxValue(sucState, alpha, beta, depth + 1, maxDepth)); // let Value(s’) = MinimaxValue(s’)
-            		if (alpha >= beta) { // if α ≥ β, return α.
-            			return alpha;
-            		}
-            	}
-            	
-    			return beta; //return β.
-    		}        	
+    		} else {
+    			int bound = (beta < originalBeta) ? TranspositionTable.EXACT : TranspositionTable.LOWER_BOUND;
+    			store(key, remainingDepth, bound, beta, bestMove);
+    			return beta; // return β.
+    		}
     	}
     }
     
+    // Stores a result in the transposition table, counting it in the statistics.
+    private void store(long key, int depth, int bound, double score, int move) {
+    	stats.ttStores++;
+    	if (transpositionTable.store(key, depth, bound, score, move)) {
+    		stats.ttWrites++;
+    	}
+    }
+
+    /**
+     * Returns the value of a finished game: a win, a loss or a draw.
+     */
+    private double utility(TablutBoardState boardState) {
+		int winner = boardState.getWinner();
+		if (winner == player_id) {
+			return 50000;
+		} else if (winner == 1 - player_id) {
+			return -50000;
+		} else {
+			// In the case of a draw we return 0 because we'll have reached 100 moves and all other leaves will either be win, loss, or draw
+			return 0;
+		}
+    }
+
+    /**
+     * Quiescence search, run where the main search stops. Evaluating a position in
+     * the middle of an exchange is misleading, so instead of returning the evaluation
+     * straight away, captures and king escapes to a corner are searched until none
+     * are left.
+     * 
+     * The side to move may also decline them all ("stand pat"), so the evaluation of
+     * the position is a bound on its value: if it is already outside the window, the
+     * node is cut off without searching any moves.
+     */
+    private double quiescenceValue(TablutBoardState boardState, double alpha, double beta, int depth, int maxDepth) {
+    	double standPat = evaluate(boardState);
+    	stats.quiescenceNodes++;
+    	boolean isMaxNode = player_id == boardState.getTurnPlayer();
+    	if (isMaxNode) {
+    		if (standPat >= beta) {
+    			return beta;
+    		}
+    		alpha = Math.max(alpha, standPat);
+    	} else {
+    		if (standPat <= alpha) {
+    			return alpha;
+    		}
+    		beta = Math.min(beta, standPat);
+    	}
+    	if (depth >= maxDepth + MAX_QUIESCENCE_DEPTH) {
+    		return isMaxNode ? alpha : beta;
+    	}
+
+    	int[] moves = moveBuffers[depth];
+    	int moveCount = boardState.generateTacticalMoves(moves);
+    	for (int i = 0; i < moveCount; i++) {
+    		if (searchAborted || ((++stats.nodes & TIME_CHECK_INTERVAL) == 0 && timeManager.isTimeUp())) {
+    			searchAborted = true;
+    			return 0;
+    		}
+
+    		boardState.makeMove(moves[i]);
+    		double value = boardState.gameOver() ? utility(boardState)
+    				: quiescenceValue(boardState, alpha, beta, depth + 1, maxDepth);
+    		boardState.unmakeMove();
+    		if (searchAborted) {
+    			return 0;
+    		}
+
+    		if (isMaxNode) {
+    			alpha = Math.max(alpha, value);
+    		} else {
+    			beta = Math.min(beta, value);
+    		}
+    		if (alpha >= beta) {
+    			return isMaxNode ? beta : alpha;
+    		}
+    	}
+    	return isMaxNode ? alpha : beta;
+    }
+
+    // The evaluation of the position for this player, from the cache if it is there.
+    private double evaluate(TablutBoardState boardState) {
+    	if (evalCache != null) {
+    		stats.evalCacheProbes++;
+    		double cached = evalCache.probe(boardState, player_id);
+    		if (!Double.isNaN(cached)) {
+    			stats.evalCacheHits++;
+    			return cached;
+    		}
+    	}
+    	double value = evaluator.evaluate(boardState, player_id);
+    	stats.evaluations++;
+    	if (evalCache != null) {
+    		evalCache.store(boardState, player_id, value);
+    	}
+    	return value;
+    }
+
     /**
      * Retrieves all successor states for a given board state by applying
      * all legal moves to clones of the current board state.
@@ -156,7 +1086,7 @@ public class StudentPlayer extends TablutPlayer {
 
     	return successors;
     }
-    
+
     /**
      * The basic evaluation function used initially (piece difference).
      * Kept for testing purposes.
@@ -0,0 +1,201 @@
+package student_player;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import tablut.Bitboards;
+import tablut.TablutBoardState;
+
+/**
+ * An evaluation that is a weighted sum of a few features of the position, with
+ * every weight tapered: each feature has an opening weight and an endgame weight,
+ * and the weight used slides linearly from one to the other as the turns go by,
+ * instead of jumping at fixed turns as in MyTools.evaluation().
+ *
+ * The features are counted from the Swedes' point of view, and the Muscovites'
+ * value is the opposite of the Swedes'. The weights are read from a text file, by
+ * default data/tapered_weights.txt (or -Dstudent_player.weights=path), with one
+ * line per feature: its name, then its opening and endgame weights. Lines starting
+ * with # are comments, and features that are left out have weight 0. If the file
+ * cannot be read, DEFAULT_WEIGHTS are used.
+ */
+public class TaperedEvaluator implements Evaluator {
+	public static final String WEIGHTS_PROPERTY = "student_player.weights";
+	public static final String DEFAULT_WEIGHTS_FILE = "data/tapered_weights.txt";
+
+	public enum Feature {
+		SWEDES, // pieces, king included
+		MUSCOVITES,
+		KING_CORNERS_1, // corners the king can reach in one move
+		KING_CORNERS_2, // and in exactly two
+		KING_MOBILITY, // squares the king can move to
+		MUSCOVITES_AROUND_KING,
+		CORNER_GUARDS // Muscovites on (1, 1), (1, 7), (7, 1) and (7, 7)
+	}
+
+	public static final int FEATURES = Feature.values().length;
+
+	/**
+	 * Weights close to those of MyTools.evaluation(), as opening and endgame weight
+	 * for each feature in the order of Feature.
+	 */
+	public static final double[] DEFAULT_WEIGHTS = {
+			1, 1, // SWEDES
+			-1, -1, // MUSCOVITES
+			1, 2, // KING_CORNERS_1
+			0, 0, // KING_CORNERS_2
+			0, 0, // KING_MOBILITY
+			-0.25, -1.5, // MUSCOVITES_AROUND_KING
+			-0.25, -0.25 // CORNER_GUARDS
+	};
+
+	private final double[] weights;
+
+	// Per-thread scratch space, so that evaluating allocates nothing.
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private static class Scratch {
+		final KingDistanceMap kingDistances = new KingDistanceMap();
+		final double[] features = new double[FEATURES];
+	}
+
+	/**
+	 * Creates the evaluator with the weights of the default file, or DEFAULT_WEIGHTS
+	 * if it cannot be read.
+	 */
+	public TaperedEvaluator() {
+		this(loadOrDefault(System.getProperty(WEIGHTS_PROPERTY, DEFAULT_WEIGHTS_FILE)));
+	}
+
+	/**
+	 * Creates the evaluator with the given weights, opening and endgame weight for
+	 * each feature in the order of Feature.
+	 */
+	public TaperedEvaluator(double[] weights) {
+		if (weights.length != 2 * FEATURES) {
+			throw new IllegalArgumentException("Expected " + 2 * FEATURES + " weights, got " + weights.length);
+		}
+		this.weights = weights.clone();
+	}
+
+	public double[] getWeights() {
+		return weights.clone();
+	}
+
+	@Override
+	public double evaluate(TablutBoardState boardState, int player) {
+		Scratch scratch = SCRATCH.get();
+		double[] features = scratch.features;
+		features(boardState, scratch.kingDistances, features);
+		double value = 0;
+		double endgame = phase(boardState);
+		for (int i = 0; i < FEATURES; i++) {
+			double weight = weights[2 * i] + endgame * (weights[2 * i + 1] - weights[2 * i]);
+			value += weight * features[i];
+		}
+		return (player == TablutBoardState.SWEDE) ? value : -value;
+	}
+
+	/**
+	 * Returns how far the game is from the opening (0) to the end (1), which is how
+	 * far each weight has moved from its opening value to its endgame value.
+	 */
+	public static double phase(TablutBoardState boardState) {
+		return Math.min(boardState.getTurnNumber(), TablutBoardState.MAX_TURNS) / (double) TablutBoardState.MAX_TURNS;
+	}
+
+	/**
+	 * Fills features, in the order of Feature, for the given position, using
+	 * kingDistances as scratch space.
+	 */
+	public static void features(TablutBoardState boardState, KingDistanceMap kingDistances, double[] features) {
+		kingDistances.compute(boardState, 2);
+		features[Feature.SWEDES.ordinal()] = boardState.getNumberPlayerPieces(TablutBoardState.SWEDE);
+		features[Feature.MUSCOVITES.ordinal()] = boardState.getNumberPlayerPieces(TablutBoardState.MUSCOVITE);
+		features[Feature.KING_CORNERS_1.ordinal()] = kingDistances.cornersAtDistance(1);
+		features[Feature.KING_CORNERS_2.ordinal()] = kingDistances.cornersAtDistance(2);
+		int reachable = Bitboards.count(kingDistances.getReachableLow(1), kingDistances.getReachableHigh(1));
+		features[Feature.KING_MOBILITY.ordinal()] = Math.max(0, reachable - 1); // not its own square
+		features[Feature.MUSCOVITES_AROUND_KING.ordinal()] = boardState.getMuscovitesAroundKing();
+		features[Feature.CORNER_GUARDS.ordinal()] = boardState.getMuscovitesOnCornerGuards();
+	}
+
+	/**
+	 * Reads weights from a file in the format described above.
+	 */
+	public static double[] load(String path) throws IOException {
+		double[] weights = new double[2 * FEATURES];
+		BufferedReader reader = new BufferedReader(new FileReader(path));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields.length != 3) {
+					throw new IOException("Expected a feature and two weights in " + path + ": " + line);
+				}
+				Feature feature;
+				try {
+					feature = Feature.valueOf(fields[0]);
+					weights[2 * feature.ordinal()] = Double.parseDouble(fields[1]);
+					weights[2 * feature.ordinal() + 1] = Double.parseDouble(fields[2]);
+				} catch (IllegalArgumentException e) { // NumberFormatException is one too
+					throw new IOException("Bad line in " + path + ": " + line, e);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return weights;
+	}
+
+	/**
+	 * Writes weights to a file that load() can read, with a comment line on top.
+	 */
+	public static void save(double[] weights, String path, String comment) throws IOException {
+		PrintWriter writer = new PrintWriter(path);
+		try {
+			writer.println("# " + comment);
+			writer.println("# feature opening_weight endgame_weight");
+			for (Feature feature : Feature.values()) {
+				writer.println(feature + " " + round(weights[2 * feature.ordinal()]) + " "
+						+ round(weights[2 * feature.ordinal() + 1]));
+			}
+			if (writer.checkError()) {
+				throw new IOException("Failed to write " + path);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	// Four decimals are plenty for a weight, and keep the file readable.
+	private static double round(double weight) {
+		return Math.round(weight * 10000) / 10000.0;
+	}
+
+	private static double[] loadOrDefault(String path) {
+		try {
+			return load(path);
+		} catch (IOException e) {
+			System.err.println("Failed to load evaluation weights, using the defaults: " + e.getMessage());
+			return DEFAULT_WEIGHTS;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TaperedEvaluator" + Arrays.toString(weights);
+	}
+}
@@ -0,0 +1,368 @@
+package student_player;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tablut.PackedMoves;
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+
+/**
+ * Tunes the weights of TaperedEvaluator on the games in the server's logs, in the
+ * manner of Texel tuning.
+ *
+ * Every game*.log with a result in outcomes.txt is replayed, and its quiet
+ * positions (no capture or corner escape for the side to move, so that the static
+ * evaluation is meant to hold) are labelled with the game's result for the Swedes:
+ * 1 for a win, 0.5 for a draw, 0 for a loss. The result is predicted as
+ * sigmoid(K * value), with value the Swedes' evaluation, and the weights are fitted
+ * to minimise the mean squared error of that prediction by gradient descent
+ * (Adam). K is fitted first, to the starting weights, and then kept.
+ *
+ * A game with a move that cannot be read or played is skipped with a warning, and
+ * the number skipped is reported.
+ *
+ * The evaluation is linear in the weights, so each position's features are
+ * extracted once. The logs are replayed and the gradient summed in parallel, one
+ * share of the positions per thread.
+ *
+ * From the root directory of the project, after ant compile, run
+ *
+ *     java -cp bin student_player.TexelTuner [log_dir] [weights_file] [iterations] [threads]
+ *
+ * which starts from the weights in the file (or the defaults), and writes the
+ * tuned weights back to it, data/tapered_weights.txt unless told otherwise.
+ */
+public class TexelTuner {
+	private static final String DEFAULT_LOG_DIR = "logs";
+	private static final String OUTCOME_FILE = "outcomes.txt";
+	private static final int DEFAULT_ITERATIONS = 2000;
+	private static final int REPORT_INTERVAL = 200;
+	// Adam's step size, and its decay rates for the mean and variance of the gradient.
+	private static final double LEARNING_RATE = 0.01;
+	private static final double BETA1 = 0.9;
+	private static final double BETA2 = 0.999;
+	private static final double EPSILON = 1e-8;
+	private static final int WEIGHTS = 2 * TaperedEvaluator.FEATURES;
+
+	// The positions, as flat arrays: features (FEATURES per position), phase, result.
+	private final double[] features;
+	private final double[] phases;
+	private final double[] results;
+	private final int size;
+	private final ExecutorService pool;
+	private final int threads;
+
+	private TexelTuner(List<Positions> games, ExecutorService pool, int threads) {
+		int total = 0;
+		for (Positions game : games) {
+			total += game.size;
+		}
+		size = total;
+		features = new double[size * TaperedEvaluator.FEATURES];
+		phases = new double[size];
+		results = new double[size];
+		int offset = 0;
+		for (Positions game : games) {
+			System.arraycopy(game.features, 0, features, offset * TaperedEvaluator.FEATURES,
+					game.size * TaperedEvaluator.FEATURES);
+			System.arraycopy(game.phases, 0, phases, offset, game.size);
+			Arrays.fill(results, offset, offset + game.size, game.result);
+			offset += game.size;
+		}
+		this.pool = pool;
+		this.threads = threads;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		String logDir = (args.length > 0) ? args[0] : DEFAULT_LOG_DIR;
+		String weightsFile = (args.length > 1) ? args[1] : TaperedEvaluator.DEFAULT_WEIGHTS_FILE;
+		int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+		int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		double[] weights;
+		try {
+			weights = TaperedEvaluator.load(weightsFile);
+		} catch (IOException e) {
+			System.out.println("Starting from the default weights: " + e.getMessage());
+			weights = TaperedEvaluator.DEFAULT_WEIGHTS.clone();
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			long start = System.nanoTime();
+			AtomicInteger skipped = new AtomicInteger();
+			List<Positions> games = replayGames(new File(logDir), pool, skipped);
+			TexelTuner tuner = new TexelTuner(games, pool, threads);
+			System.out.println(String.format("%d quiet positions from %d games (%d skipped) in %.1f s", tuner.size,
+					games.size(), skipped.get(), (System.nanoTime() - start) / 1e9));
+			if (tuner.size == 0) {
+				System.out.println("Nothing to tune on; " + weightsFile + " is left as it was.");
+				return;
+			}
+
+			double k = tuner.fitScale(weights);
+			double startError = tuner.error(weights, k, null);
+			System.out.println(String.format("K = %.4f, error %.6f", k, startError));
+			double finalError = tuner.tune(weights, k, iterations);
+			TaperedEvaluator.save(weights, weightsFile, String.format(
+					"Tuned by TexelTuner on %d positions from %d games, error %.6f (was %.6f), K = %.4f", tuner.size,
+					games.size(), finalError, startError, k));
+			System.out.println("Wrote " + weightsFile);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/* ----- Reading the logs ----- */
+
+	// The quiet positions of one game, all with the game's result for the Swedes.
+	private static class Positions {
+		double[] features = new double[64 * TaperedEvaluator.FEATURES];
+		double[] phases = new double[64];
+		int size;
+		final double result;
+
+		Positions(double result) {
+			this.result = result;
+		}
+
+		void add(TablutBoardState boardState, KingDistanceMap kingDistances, double[] scratch) {
+			if (size == phases.length) {
+				features = Arrays.copyOf(features, 2 * features.length);
+				phases = Arrays.copyOf(phases, 2 * phases.length);
+			}
+			TaperedEvaluator.features(boardState, kingDistances, scratch);
+			System.arraycopy(scratch, 0, features, size * TaperedEvaluator.FEATURES, TaperedEvaluator.FEATURES);
+			phases[size++] = TaperedEvaluator.phase(boardState);
+		}
+	}
+
+	/**
+	 * Replays every log that has a decided or drawn result in outcomes.txt, one log
+	 * per task, counting in skipped the games with a bad move.
+	 */
+	private static List<Positions> replayGames(File logDir, ExecutorService pool, final AtomicInteger skipped)
+			throws IOException, InterruptedException, ExecutionException {
+		Map<String, Double> outcomes = readOutcomes(new File(logDir, OUTCOME_FILE));
+		List<Future<Positions>> replays = new ArrayList<Future<Positions>>();
+		File[] logs = logDir.listFiles();
+		if (logs == null) {
+			throw new IOException("Cannot list " + logDir);
+		}
+		Arrays.sort(logs);
+		for (final File log : logs) {
+			final Double result = outcomes.get(log.getName());
+			if (!log.getName().startsWith("game") || result == null) {
+				continue;
+			}
+			replays.add(pool.submit(new Callable<Positions>() {
+				@Override
+				public Positions call() throws IOException {
+					return replay(log, result, skipped);
+				}
+			}));
+		}
+		List<Positions> games = new ArrayList<Positions>();
+		for (Future<Positions> replay : replays) {
+			Positions game = replay.get();
+			if (game != null) {
+				games.add(game);
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Reads the result for the Swedes of each game in outcomes.txt, by log file name.
+	 * The lines are those Server writes: game id, the players, the winner's id (or
+	 * the end message), the winner's name, the turn, the log file and the reason.
+	 */
+	private static Map<String, Double> readOutcomes(File file) throws IOException {
+		Map<String, Double> outcomes = new HashMap<String, Double>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(",");
+				if (fields.length < 7) {
+					continue;
+				}
+				String winner = fields[3].trim();
+				Double result;
+				if (winner.equals(Integer.toString(TablutBoardState.SWEDE))) {
+					result = 1.0;
+				} else if (winner.equals(Integer.toString(TablutBoardState.MUSCOVITE))) {
+					result = 0.0;
+				} else if (winner.contains("DRAW")) {
+					result = 0.5;
+				} else {
+					continue; // cancelled or undecided
+				}
+				outcomes.put(fields[6].trim(), result);
+			}
+		} finally {
+			reader.close();
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Replays a log and collects its quiet positions, or returns null if it is not a
+	 * Tablut game or a move in it cannot be read or played, which is counted in
+	 * skipped.
+	 */
+	private static Positions replay(File log, double result, AtomicInteger skipped) throws IOException {
+		Positions game = new Positions(result);
+		TablutBoardState boardState = new TablutBoardState();
+		KingDistanceMap kingDistances = new KingDistanceMap();
+		double[] scratch = new double[TaperedEvaluator.FEATURES];
+		int[] moves = new int[PackedMoves.MAX_MOVES];
+		BufferedReader reader = new BufferedReader(new FileReader(log));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("# Board class:") && !line.contains("tablut.TablutBoard")) {
+					return null;
+				}
+				if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+					continue; // header, START and GAMEOVER lines
+				}
+				if (boardState.gameOver()) {
+					break;
+				}
+				if (boardState.generateTacticalMoves(moves) == 0) {
+					game.add(boardState, kingDistances, scratch);
+				}
+				try {
+					boardState.processMove(new TablutMove(line));
+				} catch (RuntimeException e) { // a truncated or garbled line, or an illegal move
+					System.err.println("Skipping " + log + ", bad move: " + line + " (" + e + ")");
+					skipped.incrementAndGet();
+					return null;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return game;
+	}
+
+	/* ----- Fitting ----- */
+
+	/**
+	 * Finds the scale K that fits the given weights best, by golden section search
+	 * over log K.
+	 */
+	private double fitScale(double[] weights) throws InterruptedException, ExecutionException {
+		double low = Math.log(1e-3), high = Math.log(10);
+		double ratio = (Math.sqrt(5) - 1) / 2;
+		for (int i = 0; i < 40; i++) {
+			double a = high - ratio * (high - low);
+			double b = low + ratio * (high - low);
+			if (error(weights, Math.exp(a), null) < error(weights, Math.exp(b), null)) {
+				high = b;
+			} else {
+				low = a;
+			}
+		}
+		return Math.exp((low + high) / 2);
+	}
+
+	/**
+	 * Runs the given number of Adam steps on the weights, in place, and returns the
+	 * final error.
+	 */
+	private double tune(double[] weights, double k, int iterations) throws InterruptedException, ExecutionException {
+		double[] gradient = new double[WEIGHTS];
+		double[] mean = new double[WEIGHTS];
+		double[] variance = new double[WEIGHTS];
+		double error = 0;
+		for (int t = 1; t <= iterations; t++) {
+			error = error(weights, k, gradient);
+			for (int i = 0; i < WEIGHTS; i++) {
+				mean[i] = BETA1 * mean[i] + (1 - BETA1) * gradient[i];
+				variance[i] = BETA2 * variance[i] + (1 - BETA2) * gradient[i] * gradient[i];
+				double meanEstimate = mean[i] / (1 - Math.pow(BETA1, t));
+				double varianceEstimate = variance[i] / (1 - Math.pow(BETA2, t));
+				weights[i] -= LEARNING_RATE * meanEstimate / (Math.sqrt(varianceEstimate) + EPSILON);
+			}
+			if (t % REPORT_INTERVAL == 0 || t == iterations) {
+				System.out.println(String.format("iteration %d, error %.6f, %s", t, error, Arrays.toString(weights)));
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Returns the mean squared error of the predictions with the given weights, and
+	 * if gradient is not null fills it with the gradient of the error. Each thread
+	 * sums over its own share of the positions.
+	 */
+	private double error(final double[] weights, final double k, double[] gradient)
+			throws InterruptedException, ExecutionException {
+		final boolean withGradient = gradient != null;
+		List<Future<double[]>> shares = new ArrayList<Future<double[]>>();
+		for (int i = 0; i < threads; i++) {
+			final int from = (int) ((long) size * i / threads);
+			final int to = (int) ((long) size * (i + 1) / threads);
+			shares.add(pool.submit(new Callable<double[]>() {
+				@Override
+				public double[] call() {
+					return errorSum(weights, k, from, to, withGradient);
+				}
+			}));
+		}
+		double error = 0;
+		if (withGradient) {
+			Arrays.fill(gradient, 0);
+		}
+		for (Future<double[]> share : shares) {
+			double[] sums = share.get();
+			error += sums[0];
+			for (int i = 0; withGradient && i < WEIGHTS; i++) {
+				gradient[i] += sums[i + 1] / size;
+			}
+		}
+		return error / size;
+	}
+
+	// The summed squared error, then the summed gradient, over positions from to to - 1.
+	private double[] errorSum(double[] weights, double k, int from, int to, boolean withGradient) {
+		double[] sums = new double[1 + WEIGHTS];
+		for (int p = from; p < to; p++) {
+			int base = p * TaperedEvaluator.FEATURES;
+			double endgame = phases[p];
+			double value = 0;
+			for (int i = 0; i < TaperedEvaluator.FEATURES; i++) {
+				value += (weights[2 * i] + endgame * (weights[2 * i + 1] - weights[2 * i])) * features[base + i];
+			}
+			double prediction = 1 / (1 + Math.exp(-k * value));
+			double difference = prediction - results[p];
+			sums[0] += difference * difference;
+			if (withGradient) {
+				// d error / d value, then spread over the opening and endgame weights.
+				double slope = 2 * difference * k * prediction * (1 - prediction);
+				for (int i = 0; i < TaperedEvaluator.FEATURES; i++) {
+					double feature = slope * features[base + i];
+					sums[1 + 2 * i] += feature * (1 - endgame);
+					sums[2 + 2 * i] += feature * endgame;
+				}
+			}
+		}
+		return sums;
+	}
+}
@@ -0,0 +1,115 @@
+package student_player;
+
+import boardgame.Server;
+
+/**
+ * Keeps track of the time available for one move during iterative deepening.
+ *
+ * The budget is the server's timeout for the move (the long first-move timeout on
+ * turn 0, the normal one otherwise) minus a safety margin for garbage collection
+ * and network delay. Before each new iteration, the cost of that iteration is
+ * predicted from the previous ones, and the iteration is only started if it is
+ * expected to finish in time. If a prediction turns out wrong, isTimeUp() lets
+ * the search abort mid-iteration.
+ *
+ * A search started while pondering has no deadline of its own until restart() gives
+ * it one, once the opponent has played the move it was pondering on.
+ */
+public class TimeManager {
+	// Time kept in reserve so the move reaches the server before its timeout.
+	public static final long SAFETY_MARGIN_MS = 150;
+
+	// Bounds on how much longer one iteration is expected to take than the last.
+	private static final double MIN_GROWTH = 2.0;
+	private static final double MAX_GROWTH = 10.0;
+	private static final double DEFAULT_GROWTH = 6.0;
+
+	// Long enough to outlast any opponent; pondering is stopped or restarted long before.
+	private static final long PONDER_BUDGET_MS = 24L * 60 * 60 * 1000;
+
+	private volatile long startTime;
+	private volatile long deadline;
+	private long iterationStart;
+	private long lastIterationTime = -1;
+	private long previousIterationTime = -1;
+	private volatile boolean stopped;
+
+	/**
+	 * Starts the clock for a move with the given budget in milliseconds.
+	 */
+	public TimeManager(long budgetMillis) {
+		startTime = System.nanoTime();
+		iterationStart = startTime;
+		deadline = startTime + Math.max(0, budgetMillis - SAFETY_MARGIN_MS) * 1000000L;
+	}
+
+	/**
+	 * Returns a clock for pondering, which runs until stop() or restart() is called.
+	 */
+	public static TimeManager forPondering() {
+		return new TimeManager(PONDER_BUDGET_MS);
+	}
+
+	/**
+	 * Restarts the clock now with the given budget in milliseconds, keeping the
+	 * iteration times measured so far. Like stop(), this may be called from any thread.
+	 */
+	public void restart(long budgetMillis) {
+		long now = System.nanoTime();
+		startTime = now;
+		deadline = now + Math.max(0, budgetMillis - SAFETY_MARGIN_MS) * 1000000L;
+	}
+
+	/**
+	 * Returns the server's time limit for a move played on the given turn.
+	 */
+	public static long budgetForTurn(int turnNumber) {
+		return (turnNumber == 0) ? Server.FIRST_MOVE_TIMEOUT : Server.DEFAULT_TIMEOUT;
+	}
+
+	/**
+	 * Decides whether another iteration is expected to finish before the deadline,
+	 * and if so starts timing it. The first iteration is always started.
+	 */
+	public boolean startIteration() {
+		long now = System.nanoTime();
+		if (lastIterationTime >= 0) {
+			double growth = DEFAULT_GROWTH;
+			if (previousIterationTime > 0) {
+				growth = Math.min(MAX_GROWTH, Math.max(MIN_GROWTH, (double) lastIterationTime / previousIterationTime));
+			}
+			if (now + (long) (growth * lastIterationTime) > deadline) {
+				return false;
+			}
+		}
+		iterationStart = now;
+		return true;
+	}
+
+	/**
+	 * Records that the current iteration has completed.
+	 */
+	public void finishIteration() {
+		previousIterationTime = lastIterationTime;
+		lastIterationTime = System.nanoTime() - iterationStart;
+	}
+
+	/**
+	 * Returns true once the deadline has passed or stop() has been called. Like stop()
+	 * and restart(), this may be called from any thread.
+	 */
+	public boolean isTimeUp() {
+		return stopped || System.nanoTime() >= deadline;
+	}
+
+	/**
+	 * Ends the search early, for every thread checking isTimeUp().
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	public long elapsedMillis() {
+		return (System.nanoTime() - startTime) / 1000000L;
+	}
+}
@@ -0,0 +1,166 @@
+package student_player;
+
+import java.util.Arrays;
+
+import tablut.TablutBoardState;
+
+/**
+ * A fixed-size transposition table for the alpha-beta search, keyed by key(): the
+ * Zobrist key of a TablutBoardState mixed with its turn number. The same position
+ * at another turn is a different entry, since how close it is to the draw after
+ * MAX_TURNS (and the evaluation weights) depend on the turn.
+ *
+ * Entries live in a flat long[] array, three longs per entry: the key xor'ed with
+ * the other two, then the data word, then the score's double bits. The score is
+ * kept whole, so that a bound read back is exactly the one stored and compares
+ * with the search window as it did when it was stored. Reads and writes take no
+ * locks. If two threads write the same entry at once, a reader may see words from
+ * both writes; the xor then no longer matches the key and the entry is simply
+ * treated as a miss.
+ *
+ * The data word packs, from the low bits up: the best move (14 bits, as in
+ * PackedMoves, 0 for none), the remaining search depth (8 bits), the bound type (2
+ * bits) and the search generation (8 bits).
+ *
+ * Replacement is depth-preferred: an entry from the current search is only
+ * overwritten by a search at least as deep. Entries left over from earlier moves
+ * are always replaced.
+ */
+public class TranspositionTable {
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2; // the score is at least this
+	public static final int UPPER_BOUND = 3; // the score is at most this
+
+	// A probe that finds nothing returns this; real entries are never 0 because the
+	// bound type is never 0.
+	public static final long MISS = 0;
+
+	public static final int DEFAULT_MEGABYTES = 64;
+
+	private static final long TURN_KEY = 0x9E3779B97F4A7C15L;
+
+	private static final int ENTRY_LONGS = 3;
+	private static final int ENTRY_BYTES = ENTRY_LONGS * 8;
+
+	private final long[] table;
+	private final int indexMask;
+	private int generation;
+
+	/**
+	 * Creates a table using at most the given number of megabytes. The number of
+	 * entries is rounded down to a power of two.
+	 */
+	public TranspositionTable(int megabytes) {
+		long maxEntries = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+		int entries = Integer.highestOneBit((int) Math.min(maxEntries, 1 << 28));
+		table = new long[entries * ENTRY_LONGS];
+		indexMask = entries - 1;
+	}
+
+	public TranspositionTable() {
+		this(DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * Marks the start of a new search, so that entries from earlier ones can be
+	 * replaced regardless of their depth.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+	}
+
+	public int capacity() {
+		return indexMask + 1;
+	}
+
+	/**
+	 * The score found by a probe, filled in by probe(long, Entry). Each searching
+	 * thread keeps its own.
+	 */
+	public static class Entry {
+		public double score;
+	}
+
+	/**
+	 * Returns the data word stored for the key, or MISS, without its score.
+	 */
+	public long probe(long key) {
+		int index = index(key);
+		long data = table[index + 1];
+		if ((table[index] ^ data ^ table[index + 2]) != key) {
+			return MISS;
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the data word stored for the key, or MISS, and on a hit sets the
+	 * entry's score to the score stored with it.
+	 */
+	public long probe(long key, Entry entry) {
+		int index = index(key);
+		long data = table[index + 1];
+		long scoreBits = table[index + 2];
+		if ((table[index] ^ data ^ scoreBits) != key) {
+			return MISS;
+		}
+		entry.score = Double.longBitsToDouble(scoreBits);
+		return data;
+	}
+
+	/**
+	 * Stores a search result, unless it would replace a deeper result from the
+	 * current search for a different position. Returns false if it was not stored.
+	 */
+	public boolean store(long key, int depth, int bound, double score, int move) {
+		int index = index(key);
+		long oldData = table[index + 1];
+		boolean samePosition = (table[index] ^ oldData ^ table[index + 2]) == key;
+		if (oldData != MISS && !samePosition && generation(oldData) == generation && depth(oldData) > depth) {
+			return false;
+		}
+		if (samePosition && move == 0) {
+			move = move(oldData); // keep the best move we already knew about
+		}
+		long data = (move & 0x3FFFL) | ((long) Math.min(depth, 0xFF) << 14) | ((long) bound << 22)
+				| ((long) generation << 24);
+		long scoreBits = Double.doubleToRawLongBits(score);
+		table[index] = key ^ data ^ scoreBits;
+		table[index + 1] = data;
+		table[index + 2] = scoreBits;
+		return true;
+	}
+
+	/**
+	 * Returns the key to probe and store the position under.
+	 */
+	public static long key(TablutBoardState boardState) {
+		return boardState.getHashKey() ^ (boardState.getTurnNumber() * TURN_KEY);
+	}
+
+	private int index(long key) {
+		return ((int) (key ^ (key >>> 32)) & indexMask) * ENTRY_LONGS;
+	}
+
+	/* ----- Reading the fields of a data word returned by probe(). ----- */
+
+	public static int move(long data) {
+		return (int) (data & 0x3FFF);
+	}
+
+	public static int depth(long data) {
+		return (int) ((data >>> 14) & 0xFF);
+	}
+
+	public static int bound(long data) {
+		return (int) ((data >>> 22) & 0x3);
+	}
+
+	private static int generation(long data) {
+		return (int) ((data >>> 24) & 0xFF);
+	}
+}
@@ -0,0 +1,98 @@
+package tablut;
+
+import coordinates.Coord;
+import coordinates.Coordinates;
+
+/**
+ * Helpers for the 81-square bitboards used by TablutBoardState.
+ *
+ * A bitboard is split over two longs. Square (x, y) has index x * 9 + y; squares
+ * 0 to 63 live in the low word and squares 64 to 80 in the high word. Java masks
+ * long shift distances to 6 bits, so {@code 1L << square} addresses the right bit
+ * in whichever word holds the square.
+ */
+public final class Bitboards {
+    public static final int SQUARES = TablutBoardState.BOARD_SIZE * TablutBoardState.BOARD_SIZE;
+    public static final long LOW_MASK = -1L;
+    public static final long HIGH_MASK = (1L << (SQUARES - 64)) - 1;
+
+    // Every square except those in the first (or last) column, split over two words.
+    public static final long NOT_FIRST_COLUMN_LOW, NOT_FIRST_COLUMN_HIGH;
+    public static final long NOT_LAST_COLUMN_LOW, NOT_LAST_COLUMN_HIGH;
+    static {
+        long firstLow = 0, firstHigh = 0, lastLow = 0, lastHigh = 0;
+        for (int x = 0; x < TablutBoardState.BOARD_SIZE; x++) {
+            int first = square(x, 0);
+            int last = square(x, TablutBoardState.BOARD_SIZE - 1);
+            if (isHigh(first)) firstHigh |= bit(first); else firstLow |= bit(first);
+            if (isHigh(last)) lastHigh |= bit(last); else lastLow |= bit(last);
+        }
+        NOT_FIRST_COLUMN_LOW = ~firstLow;
+        NOT_FIRST_COLUMN_HIGH = ~firstHigh & HIGH_MASK;
+        NOT_LAST_COLUMN_LOW = ~lastLow;
+        NOT_LAST_COLUMN_HIGH = ~lastHigh & HIGH_MASK;
+    }
+
+    private Bitboards() {
+    }
+
+    public static int square(int x, int y) {
+        return x * TablutBoardState.BOARD_SIZE + y;
+    }
+
+    public static int square(Coord c) {
+        return square(c.x, c.y);
+    }
+
+    public static int row(int square) {
+        return square / TablutBoardState.BOARD_SIZE;
+    }
+
+    public static int column(int square) {
+        return square % TablutBoardState.BOARD_SIZE;
+    }
+
+    // The square's index on the board mirrored along its main diagonal.
+    public static int transpose(int square) {
+        return square(column(square), row(square));
+    }
+
+    public static Coord toCoord(int square) {
+        return Coordinates.get(row(square), column(square));
+    }
+
+    // True if the square is stored in the high word.
+    public static boolean isHigh(int square) {
+        return square >= 64;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long low, long high, int square) {
+        return ((isHigh(square) ? high : low) & bit(square)) != 0;
+    }
+
+    /*
+     * Shift a two-word bitboard by distance squares, towards higher squares when
+     * distance is positive and lower squares when it is negative (0 < |distance| <
+     * 64). Bits shifted off either end of the board are dropped; row wrap-around is
+     * left to the caller. Each returns one word of the result.
+     */
+    public static long shiftLow(long low, long high, int distance) {
+        if (distance > 0)
+            return low << distance;
+        return (low >>> -distance) | (high << (64 + distance));
+    }
+
+    public static long shiftHigh(long low, long high, int distance) {
+        if (distance > 0)
+            return ((high << distance) | (low >>> (64 - distance))) & HIGH_MASK;
+        return high >>> -distance;
+    }
+
+    public static int count(long low, long high) {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+}
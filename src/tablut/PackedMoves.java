@@ -0,0 +1,39 @@
+package tablut;
+
+/**
+ * Helpers for moves packed into a single int, as produced by
+ * TablutBoardState.generateLegalMoves().
+ *
+ * The low 7 bits hold the start square and the next 7 bits the end square, using
+ * the square indices of Bitboards. Packed moves carry no player; that is always
+ * the player to move in the state they were generated from. TablutMove objects
+ * only need to be built when a move is handed back to the server.
+ */
+public final class PackedMoves {
+    // Upper bound on the number of legal moves in any position: at most 16 pieces,
+    // each with at most 8 squares along its row and 8 along its column.
+    public static final int MAX_MOVES = 16 * 16;
+
+    private PackedMoves() {
+    }
+
+    public static int pack(int from, int to) {
+        return from | (to << 7);
+    }
+
+    public static int pack(TablutMove move) {
+        return pack(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()));
+    }
+
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    public static TablutMove toTablutMove(int move, int playerId) {
+        return new TablutMove(Bitboards.toCoord(from(move)), Bitboards.toCoord(to(move)), playerId);
+    }
+}
@@ -0,0 +1,79 @@
+package tablut;
+
+/**
+ * Precomputed tables for rook slides along one row or column of the board.
+ *
+ * A line is described by a 9-bit occupancy mask, bit i being set when position i
+ * along the line holds a piece. For a piece at some position, the table gives the
+ * mask of positions it can slide to in O(1): every empty square up to, but not
+ * including, the first piece in each direction. Ordinary pieces may pass over the
+ * empty throne but may not stop on it or on a corner, so their destinations are
+ * further masked with allowedTargets() for the line being moved along.
+ */
+public final class SlidingMoves {
+    private static final int SIZE = TablutBoardState.BOARD_SIZE;
+    private static final int LINE_MASK = (1 << SIZE) - 1;
+    private static final int CENTER = SIZE / 2;
+
+    // Indexed by (position << SIZE) | occupancy.
+    private static final short[] LINE_TARGETS = new short[SIZE << SIZE];
+
+    // Destinations open to ordinary pieces on each row (or column, by symmetry).
+    private static final int[] PIECE_ALLOWED = new int[SIZE];
+
+    static {
+        for (int position = 0; position < SIZE; position++) {
+            for (int occupancy = 0; occupancy <= LINE_MASK; occupancy++) {
+                int targets = 0;
+                for (int i = position - 1; i >= 0 && (occupancy & (1 << i)) == 0; i--) {
+                    targets |= 1 << i;
+                }
+                for (int i = position + 1; i < SIZE && (occupancy & (1 << i)) == 0; i++) {
+                    targets |= 1 << i;
+                }
+                LINE_TARGETS[(position << SIZE) | occupancy] = (short) targets;
+            }
+        }
+
+        for (int line = 0; line < SIZE; line++) {
+            int forbidden = 0;
+            if (line == 0 || line == SIZE - 1) {
+                forbidden = 1 | (1 << (SIZE - 1)); // the two corners on an edge
+            } else if (line == CENTER) {
+                forbidden = 1 << CENTER; // the throne
+            }
+            PIECE_ALLOWED[line] = LINE_MASK & ~forbidden;
+        }
+    }
+
+    private SlidingMoves() {
+    }
+
+    /**
+     * Returns the positions reachable from position along a line with the given
+     * occupancy. Whether position itself is marked occupied does not matter.
+     */
+    public static int targets(int position, int occupancy) {
+        return LINE_TARGETS[(position << SIZE) | (occupancy & LINE_MASK)];
+    }
+
+    /**
+     * Returns the mask of positions along the given row (or column) that a piece
+     * may stop on. The king may stop anywhere.
+     */
+    public static int allowedTargets(int line, boolean isKing) {
+        return isKing ? LINE_MASK : PIECE_ALLOWED[line];
+    }
+
+    /**
+     * Extracts the 9-bit occupancy of one line from a two-word bitboard, where the
+     * line occupies bits start to start + 8.
+     */
+    public static int lineOccupancy(long low, long high, int start) {
+        if (start >= 64)
+            return (int) (high >>> (start - 64)) & LINE_MASK;
+        if (start + SIZE <= 64)
+            return (int) (low >>> start) & LINE_MASK;
+        return (int) ((low >>> start) | (high << (64 - start))) & LINE_MASK;
+    }
+}
@@ -5,7 +5,6 @@ import boardgame.BoardState;
 import boardgame.Move;
 import coordinates.Coord;
 import coordinates.Coordinates;
-import coordinates.Coordinates.CoordinateDoesNotExistException;
 import tablut.TablutMove;
 
 import java.util.ArrayList;
@@ -29,7 +28,6 @@ public class TablutBoardState extends BoardState {
     }
 
     private static HashMap<Piece, String> piecesToSymbols;
-    private static HashMap<Piece, Integer> piecesToPlayer;
     static {
         piecesToSymbols = new HashMap<>();
         piecesToSymbols.put(Piece.BLACK, "B");
@@ -37,85 +35,145 @@ public class TablutBoardState extends BoardState {
         piecesToSymbols.put(Piece.KING, "K");
         piecesToSymbols.put(Piece.EMPTY, " ");
 
-        piecesToPlayer = new HashMap<>();
-        piecesToPlayer.put(Piece.BLACK, MUSCOVITE);
-        piecesToPlayer.put(Piece.WHITE, SWEDE);
-        piecesToPlayer.put(Piece.KING, SWEDE);
-        piecesToPlayer.put(Piece.EMPTY, ILLEGAL);
-
         Coordinates.setAllCoordinates(BOARD_SIZE);
     }
 
     private static int FIRST_PLAYER = 0; // first player white, second player black
 
-    /* These are our data storage things. */
-    private Piece[][] board = new Piece[BOARD_SIZE][BOARD_SIZE];
-    private HashSet<Coord> muscoviteCoords; // we can use hashsets because
-    private HashSet<Coord> swedeCoords;
-    private Coord kingPosition;
-    private Random rand = new Random(1917);
+    private static final int NO_SQUARE = -1;
+
+    private static final int CENTER_SQUARE = Bitboards.square(BOARD_SIZE / 2, BOARD_SIZE / 2);
+
+    // The corners and the center, where only the king may stop.
+    private static final long KING_ONLY_LOW, KING_ONLY_HIGH;
+    static {
+        long low = Bitboards.bit(CENTER_SQUARE), high = 0;
+        for (int x = 0; x < BOARD_SIZE; x += BOARD_SIZE - 1) {
+            for (int y = 0; y < BOARD_SIZE; y += BOARD_SIZE - 1) {
+                int corner = Bitboards.square(x, y);
+                if (Bitboards.isHigh(corner)) high |= Bitboards.bit(corner); else low |= Bitboards.bit(corner);
+            }
+        }
+        KING_ONLY_LOW = low;
+        KING_ONLY_HIGH = high;
+    }
+
+    /*
+     * Squares used by evaluation terms that are kept up to date as pieces move: for
+     * each square, the (up to four) squares next to it, and the squares diagonally
+     * in from the corners, which Muscovites guard.
+     */
+    private static final long[] RING_LOW = new long[Bitboards.SQUARES];
+    private static final long[] RING_HIGH = new long[Bitboards.SQUARES];
+    private static final long CORNER_GUARDS_LOW, CORNER_GUARDS_HIGH;
+    static {
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+                int neighbor = Coordinates.getNeighborSquare(square, direction);
+                if (neighbor == Coordinates.OFF_BOARD)
+                    continue;
+                if (Bitboards.isHigh(neighbor)) RING_HIGH[square] |= Bitboards.bit(neighbor);
+                else RING_LOW[square] |= Bitboards.bit(neighbor);
+            }
+        }
+        long low = 0, high = 0;
+        for (int x = 1; x < BOARD_SIZE; x += BOARD_SIZE - 3) {
+            for (int y = 1; y < BOARD_SIZE; y += BOARD_SIZE - 3) {
+                int guard = Bitboards.square(x, y);
+                if (Bitboards.isHigh(guard)) high |= Bitboards.bit(guard); else low |= Bitboards.bit(guard);
+            }
+        }
+        CORNER_GUARDS_LOW = low;
+        CORNER_GUARDS_HIGH = high;
+    }
+
+    /*
+     * Zobrist keys: one random number per (piece, square) plus one for the Swedes
+     * being on move. A position's hash is the xor of the keys of everything on it,
+     * so it can be updated with a couple of xors whenever a piece moves.
+     */
+    private static final long[][] PIECE_KEYS = new long[Piece.values().length][Bitboards.SQUARES];
+    private static final long SWEDE_TO_MOVE_KEY;
+    static {
+        Random zobristRandom = new Random(1700);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < keys.length; square++) {
+                keys[square] = zobristRandom.nextLong();
+            }
+        }
+        SWEDE_TO_MOVE_KEY = zobristRandom.nextLong();
+    }
+
+    /*
+     * These are our data storage things. Pieces are kept as bitboards (see
+     * Bitboards), two longs per piece type, so that cloning and moving are just a
+     * handful of word operations. The king is kept as a square index, and is
+     * NO_SQUARE once captured.
+     */
+    private long blackLow, blackHigh;
+    private long whiteLow, whiteHigh;
+    private int kingSquare = NO_SQUARE;
+    // All pieces, king included, on a transposed board so that a column's occupancy
+    // is 9 consecutive bits (see SlidingMoves).
+    private long rotatedLow, rotatedHigh;
+    private Random rand; // created on first use, cloning should stay cheap
     private int turnPlayer;
     private int turnNumber = 0;
     private int winner = Board.NOBODY;
+    private long hashKey; // Zobrist key of the pieces and the side to move
+    // Evaluation terms updated by putPiece() and removePiece(), like the hash.
+    private int muscovitesAroundKing;
+    private int muscovitesOnCornerGuards;
+
+    // Packed undo records for makeMove(), allocated on first use and not cloned.
+    private long[] undoStack;
+    private int undoCount;
 
     // Initial Board State creation. The genesis constructor.
     public TablutBoardState() {
         super();
 
-        // Initialize to empty
-        for (Coord c : Coordinates.iterCoordinates()) {
-            board[c.x][c.y] = Piece.EMPTY;
-        }
-
-        /* We now place the pieces on the board */
+        /* We now place the pieces on the board, which starts out empty. */
         int middlePosition = 4;
-        board[middlePosition][middlePosition] = Piece.KING;
+        putPiece(Bitboards.square(middlePosition, middlePosition), Piece.KING);
 
         // Blacks. (Muscovites)
         List<Integer> blackSidePieces = Arrays.asList(3, 4, 5);
         List<Integer> axes = Arrays.asList(0, 8);
         for (Integer axis : axes) {
             for (Integer position : blackSidePieces) {
-                board[position][axis] = Piece.BLACK;
-                board[axis][position] = Piece.BLACK;
+                putPiece(Bitboards.square(position, axis), Piece.BLACK);
+                putPiece(Bitboards.square(axis, position), Piece.BLACK);
             }
         }
         axes = Arrays.asList(1, 7);
         for (Integer axis : axes) {
-            board[axis][middlePosition] = Piece.BLACK;
-            board[middlePosition][axis] = Piece.BLACK;
+            putPiece(Bitboards.square(axis, middlePosition), Piece.BLACK);
+            putPiece(Bitboards.square(middlePosition, axis), Piece.BLACK);
         }
         // Whites. (Swedes)
         axes = Arrays.asList(2, 3, 5, 6);
         for (Integer axis : axes) {
-            board[axis][middlePosition] = Piece.WHITE;
-            board[middlePosition][axis] = Piece.WHITE;
-        }
-        // Update the lists storing the coordinates of all the pieces.
-        swedeCoords = new HashSet<>();
-        muscoviteCoords = new HashSet<>();
-        for (Coord c : Coordinates.iterCoordinates()) {
-            Piece piece = getPieceAt(c);
-            if (piecesToPlayer.get(piece) == SWEDE) {
-                swedeCoords.add(c);
-            } else if (piecesToPlayer.get(piece) == MUSCOVITE) {
-                muscoviteCoords.add(c);
-            }
+            putPiece(Bitboards.square(axis, middlePosition), Piece.WHITE);
+            putPiece(Bitboards.square(middlePosition, axis), Piece.WHITE);
         }
-        kingPosition = Coordinates.get(4, 4);
     }
 
     /* The below method is for the purpose of cloning. */
     private TablutBoardState(TablutBoardState boardState) {
-        for (Coord c : Coordinates.iterCoordinates()) {
-            board[c.x][c.y] = boardState.board[c.x][c.y];
-        }
-        swedeCoords = new HashSet<>(boardState.swedeCoords);
-        muscoviteCoords = new HashSet<>(boardState.muscoviteCoords);
-        kingPosition = boardState.kingPosition;
+        blackLow = boardState.blackLow;
+        blackHigh = boardState.blackHigh;
+        whiteLow = boardState.whiteLow;
+        whiteHigh = boardState.whiteHigh;
+        kingSquare = boardState.kingSquare;
+        rotatedLow = boardState.rotatedLow;
+        rotatedHigh = boardState.rotatedHigh;
         turnPlayer = boardState.turnPlayer;
         turnNumber = boardState.turnNumber;
         winner = boardState.getWinner(); 
+        hashKey = boardState.hashKey;
+        muscovitesAroundKing = boardState.muscovitesAroundKing;
+        muscovitesOnCornerGuards = boardState.muscovitesOnCornerGuards;
     }
 
     @Override
@@ -131,71 +189,199 @@ public class TablutBoardState extends BoardState {
             throw new IllegalArgumentException("Invalid move for current context. " + "Move: " + m.toPrettyString());
         }
 
-        // Process move...
-        Coord oldPos = m.getStartPosition();
-        Coord newPos = m.getEndPosition();
-        Piece movingPiece = getPieceAt(oldPos);
+        applyMove(Bitboards.square(m.getStartPosition()), Bitboards.square(m.getEndPosition()));
+    }
+
+    /**
+     * Applies a move in place, remembering what is needed to take it back with
+     * unmakeMove(). This lets a search walk the game tree on a single board state
+     * instead of cloning one per node.
+     *
+     * Unlike processMove(), the move is not checked for legality; it should come
+     * from getAllLegalMoves() or an equivalent source for the current position.
+     */
+    public void makeMove(TablutMove m) {
+        makeMove(PackedMoves.pack(m));
+    }
+
+    // Same as makeMove(TablutMove), for a move packed as in PackedMoves.
+    public void makeMove(int move) {
+        int from = PackedMoves.from(move);
+        int to = PackedMoves.to(move);
+        long undo = from | (to << 7) | ((kingSquare + 1L) << 18) | ((long) winner << 32);
+        int captures = applyMove(from, to);
+        pushUndo(undo | (captures << 14));
+    }
+
+    /**
+     * Passes the turn without moving, for a null-move search. Passing is not a legal
+     * move in Tablut, so the winner is not updated. Like a real move, it is taken
+     * back with unmakeMove().
+     */
+    public void makeNullMove() {
+        // A move from a square to itself never happens, so it marks the null move.
+        long undo = ((kingSquare + 1L) << 18) | ((long) winner << 32);
+        passTurn();
+        pushUndo(undo);
+    }
+
+    // Returns true if the last move applied, and not yet taken back, is a null move.
+    public boolean isAfterNullMove() {
+        return undoCount > 0 && (undoStack[undoCount - 1] & 0x3FFF) == 0;
+    }
+
+    /**
+     * Takes back the last move applied with makeMove() or makeNullMove(), restoring
+     * the exact previous state including captured pieces, turn and winner.
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("There is no move to unmake.");
+        }
+        long undo = undoStack[--undoCount];
+        int from = (int) (undo & 0x7F);
+        int to = (int) ((undo >>> 7) & 0x7F);
+        int captures = (int) ((undo >>> 14) & 0xF);
+        int previousKingSquare = (int) ((undo >>> 18) & 0x7F) - 1;
+
+        turnPlayer = getOpponent();
+        hashKey ^= SWEDE_TO_MOVE_KEY;
+        if (turnPlayer != FIRST_PLAYER) {
+            turnNumber -= 1;
+        }
+        winner = (int) (undo >>> 32);
+        if (from == to) {
+            return; // a null move
+        }
+
+        // The captured pieces all belong to the opponent of the player who moved.
+        Piece capturedPiece = (turnPlayer == MUSCOVITE) ? Piece.WHITE : Piece.BLACK;
+        for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+            if ((captures & (1 << direction)) != 0) {
+                int square = Coordinates.getNeighborSquare(to, direction);
+                putPiece(square, (square == previousKingSquare) ? Piece.KING : capturedPiece);
+            }
+        }
+
+        Piece movingPiece = getPieceAt(to);
+        removePiece(to, movingPiece);
+        putPiece(from, movingPiece);
+    }
+
+    /**
+     * Returns true if the packed move (see PackedMoves) would capture at least one
+     * piece. The move is tried on the board and taken back; nothing else changes.
+     */
+    public boolean isCapture(int move) {
+        int from = PackedMoves.from(move);
+        int to = PackedMoves.to(move);
+        Piece movingPiece = getPieceAt(from);
+        removePiece(from, movingPiece);
+        putPiece(to, movingPiece);
+        int captured = findCaptures(to);
+        removePiece(to, movingPiece);
+        putPiece(from, movingPiece);
+        return captured != 0;
+    }
 
-        // Get memory address to the list we are working on, then update it.
-        HashSet<Coord> playerCoordSet = getPlayerCoordSet();
-        playerCoordSet.remove(oldPos); // We can do this remove
-        playerCoordSet.add(newPos);
-        if (movingPiece == Piece.KING)
-            kingPosition = newPos;
+    // Returns true if the packed move is a move of the king.
+    public boolean isKingMove(int move) {
+        return PackedMoves.from(move) == kingSquare;
+    }
+
+    // Number of moves that can currently be taken back with unmakeMove().
+    public int getUndoDepth() {
+        return undoCount;
+    }
+
+    private void pushUndo(long undo) {
+        if (undoStack == null) {
+            undoStack = new long[64];
+        } else if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, 2 * undoCount);
+        }
+        undoStack[undoCount++] = undo;
+    }
+
+    /*
+     * Moves a piece, resolves captures and passes the turn. Returns the captures as
+     * a mask over the Coordinates directions, seen from the destination.
+     */
+    private int applyMove(int from, int to) {
+        // Process move...
+        Piece movingPiece = getPieceAt(from);
 
         // Now update board.
-        board[oldPos.x][oldPos.y] = Piece.EMPTY;
-        board[newPos.x][newPos.y] = movingPiece;
+        removePiece(from, movingPiece);
+        putPiece(to, movingPiece);
 
         // Now check if a capture occurred. Only a piece next to the new position could
         // have been captured.
-        List<Coord> captured = new ArrayList<>();
-        for (Coord enemy : Coordinates.getNeighbors(newPos)) {
-            if (isOpponentPieceAt(enemy)) {
+        int captured = findCaptures(to);
+
+        // Slaughter the captured enemies... like pigs. Or more like clear some bits...
+        // same thing.
+        // Note, it is possible for multiple pieces to be captured at once, so we have a
+        // mask of them.
+        for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+            if ((captured & (1 << direction)) != 0) {
+                int square = Coordinates.getNeighborSquare(to, direction);
+                // If this is the king, removing it leaves kingSquare empty: the king has been captured!
+                removePiece(square, getPieceAt(square));
+            }
+        }
+
+        // Update internal variables, winner, turn player, and turn number.
+        passTurn();
+        updateWinner(); // Check if anybody won and update internal variables if so.
+        return captured;
+    }
+
+    private void passTurn() {
+        if (turnPlayer != FIRST_PLAYER) {
+            turnNumber += 1;
+        }
+        turnPlayer = getOpponent();
+        hashKey ^= SWEDE_TO_MOVE_KEY;
+    }
+
+    /*
+     * Finds the pieces captured by the turn player's piece that has just arrived on
+     * the given square, as a mask over the Coordinates directions.
+     */
+    private int findCaptures(int to) {
+        int captured = 0;
+        for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+            int enemy = Coordinates.getNeighborSquare(to, direction);
+            if (enemy == Coordinates.OFF_BOARD)
+                continue;
+            Piece enemyPiece = getPieceAt(enemy);
+            if (enemyPiece != Piece.EMPTY && ownerOf(enemyPiece) != turnPlayer) {
                 boolean canCapture = true;
 
                 // If the opponent is a king, we need to check if its at the center or the
                 // neighbors of center.
-                // If it is, then it can only be captured on all 4 sides.
-                if (getPieceAt(enemy) == Piece.KING && Coordinates.isCenterOrNeighborCenter(kingPosition)) {
-                    for (Coord possibleAlly : Coordinates.getNeighbors(enemy)) {
-                        if (getPieceAt(possibleAlly) != Piece.BLACK && !Coordinates.isCenter(possibleAlly)) {
+                // If it is, then it can only be captured on all 4 sides. Such a king is never
+                // on an edge, so all of its neighbors exist.
+                if (enemyPiece == Piece.KING
+                        && Coordinates.isCenterOrNeighborCenter(Bitboards.row(enemy), Bitboards.column(enemy))) {
+                    for (int side = 0; side < Coordinates.DIRECTIONS; side++) {
+                        int possibleAlly = Coordinates.getNeighborSquare(enemy, side);
+                        if (getPieceAt(possibleAlly) != Piece.BLACK && possibleAlly != CENTER_SQUARE) {
                             canCapture = false;
                             break;
                         }
                     }
                 } else { // Otherwise, check for the normal, sandwich-based capture rule.
-                    try {
-                        Coord sandwichCord = Coordinates.getSandwichCoord(newPos, enemy);
-                        canCapture = canCaptureWithCoord(sandwichCord);
-                    } catch (CoordinateDoesNotExistException e) {
-                        canCapture = false;
-                    }
+                    int sandwichSquare = Coordinates.getSandwichSquare(to, direction);
+                    canCapture = sandwichSquare != Coordinates.OFF_BOARD && canCaptureWithSquare(sandwichSquare);
                 }
                 if (canCapture) {
-                    captured.add(enemy);
+                    captured |= 1 << direction;
                 }
             }
         }
-
-        // Slaughter the captured enemies... like pigs. Or more like remove object
-        // memory addresses... same thing.
-        // Note, it is possible for multiple pieces to be captured at once, so we have a
-        // list of them.
-        for (Coord capturedCoord : captured) {
-            if (getPieceAt(capturedCoord) == Piece.KING) {
-                kingPosition = null;
-            } // the king has been captured!
-            getPlayerCoordSet(getOpponent()).remove(capturedCoord);
-            board[capturedCoord.x][capturedCoord.y] = Piece.EMPTY;
-        }
-
-        // Update internal variables, winner, turn player, and turn number.
-        if (turnPlayer != FIRST_PLAYER) {
-            turnNumber += 1;
-        }
-        turnPlayer = getOpponent();
-        updateWinner(); // Check if anybody won and update internal variables if so.
+        return captured;
     }
 
     // Determines if a player has won by updating internal variable.
@@ -203,14 +389,15 @@ public class TablutBoardState extends BoardState {
         // Check if the king was captured -- MUSCOVITES WIN!
         // Also checking if the swedes even have any legal moves at all. If not, they
         // lose.
-        if (kingPosition == null || !playerHasALegalMove(SWEDE)) {
+        if (kingSquare == NO_SQUARE || !playerHasALegalMove(SWEDE)) {
             winner = MUSCOVITE;
         }
 
         // Check if king is at corner -- SWEDES WIN!
         // Also checking if the muscovites even have any legal moves at all. If not,
         // they lose.
-        else if (Coordinates.isCorner(kingPosition) || !playerHasALegalMove(MUSCOVITE)) {
+        else if (Coordinates.isCorner(Bitboards.row(kingSquare), Bitboards.column(kingSquare))
+                || !playerHasALegalMove(MUSCOVITE)) {
             winner = SWEDE;
         }
 
@@ -225,31 +412,154 @@ public class TablutBoardState extends BoardState {
      * desirable to select a subset of moves from specific positions.
      */
     public ArrayList<TablutMove> getAllLegalMoves() {
-        ArrayList<TablutMove> allMoves = new ArrayList<>();
-        for (Coord pos : getPlayerCoordSet()) {
-            allMoves.addAll(getLegalMovesForPosition(pos));
+        int[] moves = new int[PackedMoves.MAX_MOVES];
+        int count = generateLegalMoves(moves);
+        ArrayList<TablutMove> allMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            allMoves.add(PackedMoves.toTablutMove(moves[i], turnPlayer));
         }
         return allMoves;
     }
 
     /**
-     * Check if there are any legal moves for the player.
+     * Writes all legal moves for the player to move into the buffer as packed ints
+     * (see PackedMoves) and returns how many there are. Nothing is allocated, so a
+     * search can reuse one buffer of PackedMoves.MAX_MOVES entries per ply.
+     */
+    public int generateLegalMoves(int[] moves) {
+        int count = 0;
+        if (turnPlayer == MUSCOVITE) {
+            count = addMovesFromPieces(blackLow, 0, false, moves, count);
+            count = addMovesFromPieces(blackHigh, 64, false, moves, count);
+        } else {
+            count = addMovesFromPieces(whiteLow, 0, false, moves, count);
+            count = addMovesFromPieces(whiteHigh, 64, false, moves, count);
+            if (kingSquare != NO_SQUARE) {
+                count = addMovesFrom(kingSquare, true, moves, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes only the tactical moves for the player to move into the buffer, and
+     * returns how many there are: moves that capture at least one piece, and king
+     * moves onto a corner. Meant for a quiescence search, which resolves these
+     * before trusting a static evaluation.
+     */
+    public int generateTacticalMoves(int[] moves) {
+        int count = generateLegalMoves(moves);
+        int tactical = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int to = PackedMoves.to(move);
+            boolean isTactical;
+            if (isKingMove(move)) {
+                isTactical = Coordinates.isCorner(Bitboards.row(to), Bitboards.column(to)) || isCapture(move);
+            } else {
+                isTactical = hasOpponentNeighbor(to) && isCapture(move);
+            }
+            if (isTactical) {
+                moves[tactical++] = move;
+            }
+        }
+        return tactical;
+    }
+
+    // Cheap test that rules out most non-captures before trying them with isCapture().
+    private boolean hasOpponentNeighbor(int square) {
+        for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+            int neighbor = Coordinates.getNeighborSquare(square, direction);
+            if (neighbor != Coordinates.OFF_BOARD) {
+                Piece piece = getPieceAt(neighbor);
+                if (piece != Piece.EMPTY && ownerOf(piece) != turnPlayer)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // Adds the moves of every piece in one bitboard word; offset is 64 for the high word.
+    private int addMovesFromPieces(long pieces, int offset, boolean isKing, int[] moves, int count) {
+        for (; pieces != 0; pieces &= pieces - 1) {
+            count = addMovesFrom(offset + Long.numberOfTrailingZeros(pieces), isKing, moves, count);
+        }
+        return count;
+    }
+
+    // Adds every slide from the square, looked up in the SlidingMoves tables.
+    private int addMovesFrom(int from, boolean isKing, int[] moves, int count) {
+        int x = Bitboards.row(from);
+        int y = Bitboards.column(from);
+        for (int targets = rowTargets(x, y, isKing); targets != 0; targets &= targets - 1) {
+            moves[count++] = PackedMoves.pack(from, Bitboards.square(x, Integer.numberOfTrailingZeros(targets)));
+        }
+        for (int targets = columnTargets(x, y, isKing); targets != 0; targets &= targets - 1) {
+            moves[count++] = PackedMoves.pack(from, Bitboards.square(Integer.numberOfTrailingZeros(targets), y));
+        }
+        return count;
+    }
+
+    // Columns the piece at (x, y) may slide to along its row.
+    private int rowTargets(int x, int y, boolean isKing) {
+        int occupancy = SlidingMoves.lineOccupancy(blackLow | whiteLow, blackHigh | whiteHigh, x * BOARD_SIZE);
+        if (kingSquare != NO_SQUARE && Bitboards.row(kingSquare) == x) {
+            occupancy |= 1 << Bitboards.column(kingSquare);
+        }
+        return SlidingMoves.targets(y, occupancy) & SlidingMoves.allowedTargets(x, isKing);
+    }
+
+    // Rows the piece at (x, y) may slide to along its column.
+    private int columnTargets(int x, int y, boolean isKing) {
+        int occupancy = SlidingMoves.lineOccupancy(rotatedLow, rotatedHigh, y * BOARD_SIZE);
+        return SlidingMoves.targets(x, occupancy) & SlidingMoves.allowedTargets(y, isKing);
+    }
+
+    /**
+     * Check if there are any legal moves for the player. This runs after every move,
+     * so rather than scanning pieces it answers from the occupancy bitboards in a
+     * fixed number of word operations: a piece can move if a neighboring square is
+     * one it may stop on, or, next to an empty center, if the square past it is empty.
      */
     private boolean playerHasALegalMove(int player) {
-        for (Coord c : getPlayerCoordSet(player)) {
-            for (Coord neighbor : Coordinates.getNeighbors(c)) {
-                if (coordIsEmpty(neighbor)) {
-                    if (pieceIsAllowedAt(neighbor, getPieceAt(c))) {
-                        return true;
-                    }
-                    // Need another convoluted check just in case it is the center.
-                    if (Coordinates.isCenter(neighbor)) {
-                        int xDiff = neighbor.x - c.x;
-                        int yDiff = neighbor.y - c.y;
-                        if (coordIsEmpty(Coordinates.get(neighbor.x + xDiff, neighbor.y + yDiff)))
-                            return true;
-                    }
-                }
+        long occupiedLow = blackLow | whiteLow;
+        long occupiedHigh = blackHigh | whiteHigh;
+        if (kingSquare != NO_SQUARE) {
+            if (Bitboards.isHigh(kingSquare)) occupiedHigh |= Bitboards.bit(kingSquare); else occupiedLow |= Bitboards.bit(kingSquare);
+        }
+
+        if (player == SWEDE && kingSquare != NO_SQUARE) {
+            // The king may stop anywhere, so any empty neighbor will do.
+            for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+                int neighbor = Coordinates.getNeighborSquare(kingSquare, direction);
+                if (neighbor != Coordinates.OFF_BOARD && squareIsEmpty(neighbor))
+                    return true;
+            }
+        }
+        long piecesLow = (player == MUSCOVITE) ? blackLow : whiteLow;
+        long piecesHigh = (player == MUSCOVITE) ? blackHigh : whiteHigh;
+
+        // Squares an ordinary piece may stop on, then every square next to one of them.
+        long targetLow = ~occupiedLow & ~KING_ONLY_LOW;
+        long targetHigh = ~occupiedHigh & ~KING_ONLY_HIGH & Bitboards.HIGH_MASK;
+        long fromLow = Bitboards.shiftLow(targetLow, targetHigh, BOARD_SIZE)
+                | Bitboards.shiftLow(targetLow, targetHigh, -BOARD_SIZE)
+                | Bitboards.shiftLow(targetLow & Bitboards.NOT_LAST_COLUMN_LOW, targetHigh & Bitboards.NOT_LAST_COLUMN_HIGH, 1)
+                | Bitboards.shiftLow(targetLow & Bitboards.NOT_FIRST_COLUMN_LOW, targetHigh & Bitboards.NOT_FIRST_COLUMN_HIGH, -1);
+        long fromHigh = Bitboards.shiftHigh(targetLow, targetHigh, BOARD_SIZE)
+                | Bitboards.shiftHigh(targetLow, targetHigh, -BOARD_SIZE)
+                | Bitboards.shiftHigh(targetLow & Bitboards.NOT_LAST_COLUMN_LOW, targetHigh & Bitboards.NOT_LAST_COLUMN_HIGH, 1)
+                | Bitboards.shiftHigh(targetLow & Bitboards.NOT_FIRST_COLUMN_LOW, targetHigh & Bitboards.NOT_FIRST_COLUMN_HIGH, -1);
+        if ((piecesLow & fromLow) != 0 || (piecesHigh & fromHigh) != 0)
+            return true;
+
+        // Need another convoluted check just in case it is the center.
+        if (squareIsEmpty(CENTER_SQUARE)) {
+            for (int direction = 0; direction < Coordinates.DIRECTIONS; direction++) {
+                int neighbor = Coordinates.getNeighborSquare(CENTER_SQUARE, direction);
+                int across = Coordinates.getNeighborSquare(CENTER_SQUARE, (direction + 2) % Coordinates.DIRECTIONS);
+                if (Bitboards.contains(piecesLow, piecesHigh, neighbor) && squareIsEmpty(across))
+                    return true;
             }
         }
         return false;
@@ -266,53 +576,27 @@ public class TablutBoardState extends BoardState {
 
         // Check that the piece being requested actually belongs to the player.
         Piece piece = getPieceAt(start);
-        if (piecesToPlayer.get(piece) != turnPlayer) {
+        if (ownerOf(piece) != turnPlayer) {
             return legalMoves;
         }
 
-        // Iterate along 4 directions.
-        List<Coord> goodCoords = new ArrayList<>();
-        goodCoords.addAll(getLegalCoordsInDirection(start, -1, 0)); // move in -x direction
-        goodCoords.addAll(getLegalCoordsInDirection(start, 0, -1)); // move in -y direction
-        goodCoords.addAll(getLegalCoordsInDirection(start, 1, 0)); // move in +x direction
-        goodCoords.addAll(getLegalCoordsInDirection(start, 0, 1)); // move in +y direction
-
         /*
-         * Add the real moves now. We do not call isLegal here; this is because we
-         * efficiently enforce legality by only adding those that are legal. This makes
-         * for a more efficient method so people aren't slowed down by just figuring out
-         * what they can do.
+         * Add the real moves now. We do not call isLegal here; this is because the
+         * sliding tables only ever give legal destinations, corner and center
+         * restrictions included.
          */
-        for (Coord end : goodCoords) {
-            if (pieceIsAllowedAt(end, piece)) {// only king moves to corner or center, so need to check.
-                legalMoves.add(new TablutMove(start, end, this.turnPlayer));
-            }
+        int[] moves = new int[2 * (BOARD_SIZE - 1)];
+        int count = addMovesFrom(Bitboards.square(start), piece == Piece.KING, moves, 0);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(PackedMoves.toTablutMove(moves[i], turnPlayer));
         }
         return legalMoves;
     }
 
-    private List<Coord> getLegalCoordsInDirection(Coord start, int x, int y) {
-        ArrayList<Coord> coords = new ArrayList<>();
-        assert (!(x != 0 && y != 0));
-        int startPos = (x != 0) ? start.x : start.y; // starting at x or y
-        int incr = (x != 0) ? x : y; // incrementing the x or y value
-        int endIdx = (incr == 1) ? BOARD_SIZE - 1 : 0; // moving in the 0 or 8 direction
-
-        for (int i = startPos + incr; incr * i <= endIdx; i += incr) { // increasing/decreasing functionality
-            // new coord is an x coord change or a y coord change
-            Coord coord = (x != 0) ? Coordinates.get(i, start.y) : Coordinates.get(start.x, i);
-            if (coordIsEmpty(coord)) {
-                coords.add(coord);
-            } else {
-                break;
-            }
-        }
-        return coords;
-    }
-
-    // Determines whether or not this coord is a valid coord we can sandwich with.
-    private boolean canCaptureWithCoord(Coord c) {
-        return Coordinates.isCorner(c) || Coordinates.isCenter(c) || piecesToPlayer.get(getPieceAt(c)) == turnPlayer;
+    // Determines whether or not this square is a valid square we can sandwich with.
+    private boolean canCaptureWithSquare(int square) {
+        return Coordinates.isCorner(Bitboards.row(square), Bitboards.column(square)) || square == CENTER_SQUARE
+                || ownerOf(getPieceAt(square)) == turnPlayer;
     }
 
     // Returns all of the coordinates of pieces belonging to the current player.
@@ -330,12 +614,94 @@ public class TablutBoardState extends BoardState {
         return new HashSet<Coord>(getPlayerCoordSet(getOpponent())); // Copy the set so no funny business.
     }
 
-    private HashSet<Coord> getPlayerCoordSet() {
-        return getPlayerCoordSet(turnPlayer);
+    // Builds the set of coordinates of the player's pieces from the bitboards.
+    private HashSet<Coord> getPlayerCoordSet(int player) {
+        HashSet<Coord> coords = new HashSet<>();
+        long low = (player == MUSCOVITE) ? blackLow : whiteLow;
+        long high = (player == MUSCOVITE) ? blackHigh : whiteHigh;
+        for (; low != 0; low &= low - 1) {
+            coords.add(Bitboards.toCoord(Long.numberOfTrailingZeros(low)));
+        }
+        for (; high != 0; high &= high - 1) {
+            coords.add(Bitboards.toCoord(64 + Long.numberOfTrailingZeros(high)));
+        }
+        if (player == SWEDE && kingSquare != NO_SQUARE) {
+            coords.add(Bitboards.toCoord(kingSquare));
+        }
+        return coords;
     }
 
-    private HashSet<Coord> getPlayerCoordSet(int player) {
-        return (player == MUSCOVITE) ? muscoviteCoords : swedeCoords;
+    // Sets the piece's bit on an empty square.
+    private void putPiece(int square, Piece piece) {
+        hashKey ^= PIECE_KEYS[piece.ordinal()][square];
+        toggleRotated(square);
+        long bit = Bitboards.bit(square);
+        boolean high = Bitboards.isHigh(square);
+        switch (piece) {
+        case BLACK:
+            if (high) blackHigh |= bit; else blackLow |= bit;
+            updateMuscoviteTerms(square, 1);
+            break;
+        case WHITE:
+            if (high) whiteHigh |= bit; else whiteLow |= bit;
+            break;
+        case KING:
+            kingSquare = square;
+            muscovitesAroundKing = Bitboards.count(blackLow & RING_LOW[square], blackHigh & RING_HIGH[square]);
+            break;
+        default:
+            break;
+        }
+    }
+
+    // Clears the piece's bit, leaving the square empty.
+    private void removePiece(int square, Piece piece) {
+        hashKey ^= PIECE_KEYS[piece.ordinal()][square];
+        toggleRotated(square);
+        long bit = Bitboards.bit(square);
+        boolean high = Bitboards.isHigh(square);
+        switch (piece) {
+        case BLACK:
+            if (high) blackHigh &= ~bit; else blackLow &= ~bit;
+            updateMuscoviteTerms(square, -1);
+            break;
+        case WHITE:
+            if (high) whiteHigh &= ~bit; else whiteLow &= ~bit;
+            break;
+        case KING:
+            kingSquare = NO_SQUARE;
+            muscovitesAroundKing = 0;
+            break;
+        default:
+            break;
+        }
+    }
+
+    // Counts a Muscovite arriving on (delta 1) or leaving (delta -1) the square.
+    private void updateMuscoviteTerms(int square, int delta) {
+        if (kingSquare != NO_SQUARE && Bitboards.contains(RING_LOW[kingSquare], RING_HIGH[kingSquare], square)) {
+            muscovitesAroundKing += delta;
+        }
+        if (Bitboards.contains(CORNER_GUARDS_LOW, CORNER_GUARDS_HIGH, square)) {
+            muscovitesOnCornerGuards += delta;
+        }
+    }
+
+    private void toggleRotated(int square) {
+        int rotated = Bitboards.transpose(square);
+        if (Bitboards.isHigh(rotated)) rotatedHigh ^= Bitboards.bit(rotated); else rotatedLow ^= Bitboards.bit(rotated);
+    }
+
+    private static int ownerOf(Piece piece) {
+        switch (piece) {
+        case BLACK:
+            return MUSCOVITE;
+        case WHITE:
+        case KING:
+            return SWEDE;
+        default:
+            return ILLEGAL;
+        }
     }
 
     public boolean isLegal(TablutMove move) {
@@ -349,7 +715,7 @@ public class TablutBoardState extends BoardState {
         Piece piece = getPieceAt(start); // this will check if the position is on the board
 
         // Check that the piece being requested actually belongs to the player.
-        if (piecesToPlayer.get(piece) != turnPlayer)
+        if (ownerOf(piece) != turnPlayer)
             return false;
 
         // Next, make sure move doesn't end on a piece.
@@ -365,36 +731,73 @@ public class TablutBoardState extends BoardState {
         if (!(start.x == end.x || start.y == end.y))
             return false;
 
-        // Now we make sure it isn't moving through any other pieces.
-        for (Coord throughCoordinate : start.getCoordsBetween(end)) {
-            if (!coordIsEmpty(throughCoordinate))
-                return false;
-        }
-
-        // Make sure, if its a corner or center, that the king is the only one able to
-        // go there.
-        if (!pieceIsAllowedAt(end, piece))
+        // Now we make sure it isn't moving through any other pieces and, if it ends on
+        // a corner or the center, that it is the king. The sliding tables do both.
+        boolean isKing = piece == Piece.KING;
+        int targets = (start.x == end.x) ? rowTargets(start.x, start.y, isKing) : columnTargets(start.x, start.y, isKing);
+        if ((targets & (1 << ((start.x == end.x) ? end.y : end.x))) == 0)
             return false;
 
         // All of the conditions have been satisfied, we have a legal move!
         return true;
     }
 
+    /**
+     * Same as isLegal(TablutMove) for a packed move (see PackedMoves) by the player
+     * to move. Useful to check a move remembered from another position, such as a
+     * transposition table move, before playing it.
+     */
+    public boolean isLegal(int move) {
+        int from = PackedMoves.from(move);
+        int to = PackedMoves.to(move);
+        if (from >= Bitboards.SQUARES || to >= Bitboards.SQUARES)
+            return false;
+        Piece piece = getPieceAt(from);
+        if (ownerOf(piece) != turnPlayer)
+            return false;
+
+        int startX = Bitboards.row(from), startY = Bitboards.column(from);
+        int endX = Bitboards.row(to), endY = Bitboards.column(to);
+        boolean isKing = piece == Piece.KING;
+        if (startX == endX)
+            return (rowTargets(startX, startY, isKing) & (1 << endY)) != 0;
+        if (startY == endY)
+            return (columnTargets(startX, startY, isKing) & (1 << endX)) != 0;
+        return false;
+    }
+
     /* ----- Useful helper functions. ----- */
     public Piece getPieceAt(int xPosition, int yPosition) {
-        return board[xPosition][yPosition];
+        if (xPosition < 0 || xPosition >= BOARD_SIZE || yPosition < 0 || yPosition >= BOARD_SIZE)
+            throw new ArrayIndexOutOfBoundsException(String.format("(%d %d) is off the board.", xPosition, yPosition));
+        return getPieceAt(Bitboards.square(xPosition, yPosition));
+    }
+
+    // Looks a square up in the bitboards.
+    private Piece getPieceAt(int square) {
+        if (square == kingSquare)
+            return Piece.KING;
+        if (Bitboards.contains(blackLow, blackHigh, square))
+            return Piece.BLACK;
+        if (Bitboards.contains(whiteLow, whiteHigh, square))
+            return Piece.WHITE;
+        return Piece.EMPTY;
+    }
+
+    private boolean squareIsEmpty(int square) {
+        return square != kingSquare && !Bitboards.contains(blackLow | whiteLow, blackHigh | whiteHigh, square);
     }
 
     public Piece getPieceAt(Coord position) {
-        return getPieceAt(position.x, position.y);
+        return getPieceAt(Bitboards.square(position));
     }
 
     public boolean turnPlayerCanMoveFrom(Coord position) {
-        return piecesToPlayer.get(getPieceAt(position)) == turnPlayer;
+        return ownerOf(getPieceAt(position)) == turnPlayer;
     }
 
     public boolean isOpponentPieceAt(Coord position) {
-        return !(coordIsEmpty(position)) && piecesToPlayer.get(getPieceAt(position)) != turnPlayer;
+        return !(coordIsEmpty(position)) && ownerOf(getPieceAt(position)) != turnPlayer;
     }
 
     public boolean coordIsEmpty(Coord c) {
@@ -406,17 +809,75 @@ public class TablutBoardState extends BoardState {
     }
 
     public int getNumberPlayerPieces(int player) {
-        return getPlayerCoordSet(player).size();
+        if (player == MUSCOVITE)
+            return Bitboards.count(blackLow, blackHigh);
+        return Bitboards.count(whiteLow, whiteHigh) + (kingSquare == NO_SQUARE ? 0 : 1);
+    }
+
+    /**
+     * Returns the number of Muscovites on the squares next to the king, or 0 once
+     * the king is captured. Like the piece counts, this is kept up to date as moves
+     * are made, so reading it is free.
+     */
+    public int getMuscovitesAroundKing() {
+        return muscovitesAroundKing;
+    }
+
+    /**
+     * Returns the number of Muscovites on the squares diagonally in from the
+     * corners, (1, 1), (1, 7), (7, 1) and (7, 7), from where they guard them.
+     */
+    public int getMuscovitesOnCornerGuards() {
+        return muscovitesOnCornerGuards;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist key of this position: the pieces on the board and
+     * the side to move. It is kept up to date as moves are processed, so reading it
+     * is free. Positions reached by different move orders share the same key.
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    // Two states are equal when they hold the same position, as with getHashKey().
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof TablutBoardState))
+            return false;
+        TablutBoardState other = (TablutBoardState) o;
+        return blackLow == other.blackLow && blackHigh == other.blackHigh && whiteLow == other.whiteLow
+                && whiteHigh == other.whiteHigh && kingSquare == other.kingSquare && turnPlayer == other.turnPlayer;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hashKey ^ (hashKey >>> 32));
     }
 
     public Coord getKingPosition() {
-        return kingPosition;
+        return (kingSquare == NO_SQUARE) ? null : Bitboards.toCoord(kingSquare);
+    }
+
+    // The king's square index (see Bitboards), or -1 once it is captured.
+    public int getKingSquare() {
+        return kingSquare;
+    }
+
+    /**
+     * Returns the squares holding a piece, king included, as the low word of a
+     * bitboard (see Bitboards). getOccupiedHigh() returns the high word.
+     */
+    public long getOccupiedLow() {
+        long occupied = blackLow | whiteLow;
+        return (kingSquare != NO_SQUARE && !Bitboards.isHigh(kingSquare)) ? occupied | Bitboards.bit(kingSquare) : occupied;
     }
 
-    // If its a king, it can move anywhere. Otherwise, make sure it isn't trying to
-    // move to the center or a corner.
-    private boolean pieceIsAllowedAt(Coord pos, Piece piece) {
-        return piece == Piece.KING || !(Coordinates.isCorner(pos) || Coordinates.isCenter(pos));
+    public long getOccupiedHigh() {
+        long occupied = blackHigh | whiteHigh;
+        return (kingSquare != NO_SQUARE && Bitboards.isHigh(kingSquare)) ? occupied | Bitboards.bit(kingSquare) : occupied;
     }
 
     /* ----- Used by server. ----- */
@@ -459,6 +920,9 @@ public class TablutBoardState extends BoardState {
     @Override
     public Move getRandomMove() {
         ArrayList<TablutMove> moves = getAllLegalMoves();
+        if (rand == null) {
+            rand = new Random(1917);
+        }
         return moves.get(rand.nextInt(moves.size()));
     }
 
@@ -26,4 +26,14 @@ public abstract class TablutPlayer extends Player {
 
     // Method to be overwritten.
     public abstract Move chooseMove(TablutBoardState boardState);
+
+    @Override
+    final public Move chooseMove(BoardState boardState, long timeLeftMillis) {
+        return chooseMove((TablutBoardState) boardState, timeLeftMillis);
+    }
+
+    // Method to be overwritten by deadline-aware players (see Player.isDeadlineAware()).
+    public Move chooseMove(TablutBoardState boardState, long timeLeftMillis) {
+        return chooseMove(boardState);
+    }
 }
@@ -0,0 +1,52 @@
+package student_player;
+
+/**
+ * Checks MctsTree's choice of child. Run by ant test, which fails if main()
+ * throws.
+ */
+public class MctsTreeTest {
+	private static final double EXPLORATION = 1.0;
+	private static final double BIAS_WEIGHT = 1.0;
+
+	public static void main(String[] args) {
+		selectsUnvisitedChildWithHighestBias();
+		selectsUnvisitedChildBeforeVisitedOnes();
+		System.out.println("MctsTreeTest passed");
+	}
+
+	private static void selectsUnvisitedChildWithHighestBias() {
+		MctsTree tree = rootWithChildren(0.1, 0.5, 0.3, -0.2);
+		int first = tree.firstChild(MctsTree.ROOT);
+		check(tree.selectChild(MctsTree.ROOT, EXPLORATION, BIAS_WEIGHT) == first + 1,
+				"the unvisited child with bias 0.5 should be selected");
+	}
+
+	private static void selectsUnvisitedChildBeforeVisitedOnes() {
+		MctsTree tree = rootWithChildren(0.9, 0.1);
+		int first = tree.firstChild(MctsTree.ROOT);
+		tree.addVisit(MctsTree.ROOT);
+		tree.addVisit(first);
+		tree.addResult(first, 2);
+		check(tree.selectChild(MctsTree.ROOT, EXPLORATION, BIAS_WEIGHT) == first + 1,
+				"the unvisited child should be selected before a visited winning one");
+	}
+
+	// A tree whose root is expanded into children with the given biases.
+	private static MctsTree rootWithChildren(double... biases) {
+		MctsTree tree = new MctsTree(1 + biases.length);
+		tree.reset();
+		check(tree.startExpansion(MctsTree.ROOT), "the root should be expandable");
+		int first = tree.allocateChildren(MctsTree.ROOT, biases.length);
+		for (int i = 0; i < biases.length; i++) {
+			tree.setChild(first + i, i + 1, biases[i]);
+		}
+		tree.finishExpansion(MctsTree.ROOT);
+		return tree;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+}
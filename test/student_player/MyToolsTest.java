@@ -0,0 +1,54 @@
+package student_player;
+
+import tablut.Bitboards;
+import tablut.TablutBoardState;
+import tablut.TablutMove;
+
+/**
+ * Pins the value of MyTools.kingMovesToCornerValue(): the number of corners the
+ * king can reach in one move. Run by ant test, which fails if main() throws.
+ */
+public class MyToolsTest {
+	public static void main(String[] args) {
+		kingOneMoveFromTwoCorners();
+		kingTwoMovesFromACorner();
+		System.out.println("MyToolsTest passed");
+	}
+
+	// The king ends on (4, 0) with the rest of the column empty, so (0, 0) and
+	// (8, 0) are each one move away.
+	private static void kingOneMoveFromTwoCorners() {
+		TablutBoardState boardState = play("3 0 3 3 0", "2 4 2 5 1", "4 0 2 0 0", "4 2 8 2 1", "0 5 1 5 0",
+				"6 4 6 6 1", "2 0 1 0 0", "4 3 5 3 1", "5 0 5 1 0", "5 3 7 3 1", "4 1 0 1 0", "4 4 4 0 1",
+				"1 0 1 1 0");
+		check(boardState.getKingSquare() == Bitboards.square(4, 0), "the king should be on (4, 0)");
+		check(MyTools.kingMovesToCornerValue(boardState) == 2, "two corners are one move away");
+	}
+
+	// The king ends on (4, 3), where (0, 0) is two moves away, through (0, 3), and
+	// no corner is one move away.
+	private static void kingTwoMovesFromACorner() {
+		TablutBoardState boardState = play("7 4 7 5 0", "4 3 7 3 1", "0 3 6 3 0", "4 4 4 3 1");
+		check(boardState.getKingSquare() == Bitboards.square(4, 3), "the king should be on (4, 3)");
+		KingDistanceMap distances = new KingDistanceMap();
+		distances.compute(boardState, 2);
+		check(distances.distanceTo(0, 0) == 2, "(0, 0) is two moves away");
+		check(MyTools.kingMovesToCornerValue(boardState) == 0, "no corner is one move away");
+	}
+
+	// Plays the moves, as the server's logs write them, from the starting position.
+	private static TablutBoardState play(String... moves) {
+		TablutBoardState boardState = new TablutBoardState();
+		for (String move : moves) {
+			boardState.processMove(new TablutMove(move));
+		}
+		check(!boardState.gameOver(), "the game should still be going");
+		return boardState;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+}